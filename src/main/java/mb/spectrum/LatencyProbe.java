@@ -0,0 +1,95 @@
+package mb.spectrum;
+
+import java.text.MessageFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import mb.spectrum.audio.RollingHistogram;
+import mb.spectrum.view.View;
+
+/**
+ * Measures the capture-to-photon latency per view.
+ * <p>
+ * Every audio block is tagged with its capture time in the audio callback, and the tag is carried through the 
+ * analysis into the frames handed to the view. The newest capture time consumed by a pulse is remembered, and the 
+ * latency is recorded when the next pulse starts, by which time the scene of the previous pulse has been rendered.
+ * Only FX thread access is expected.
+ */
+public class LatencyProbe {
+	
+	// 1ms buckets up to 1s
+	private static final long BUCKET_WIDTH = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final int BUCKET_COUNT = 1000;
+	private static final int WINDOW_SIZE = 4096;
+	
+	private final Map<String, RollingHistogram> histograms = new LinkedHashMap<>();
+	
+	private View pendingView;
+	private long pendingCaptureNanos, newestCaptureNanos;
+	private boolean frameConsumed;
+	
+	/**
+	 * Called at the start of a pulse. Records the latency of the data rendered by the previous pulse.
+	 */
+	public void pulseStarted() {
+		if(pendingView != null) {
+			getHistogram(pendingView).record(System.nanoTime() - pendingCaptureNanos);
+			pendingView = null;
+		}
+		frameConsumed = false;
+	}
+	
+	/**
+	 * Called for every frame handed to the view during a pulse.
+	 * @param captureNanos Capture time of the frame
+	 */
+	public void frameConsumed(long captureNanos) {
+		// Compared by difference, as nano times may be negative and overflow
+		if(!frameConsumed || captureNanos - newestCaptureNanos > 0) {
+			newestCaptureNanos = captureNanos;
+			frameConsumed = true;
+		}
+	}
+	
+	/**
+	 * Called once the view updated itself for the pulse, so that the latency of the newest frame 
+	 * it consumed is recorded when the next pulse starts.
+	 * @param view Current view
+	 */
+	public void frameRendered(View view) {
+		if(frameConsumed) {
+			pendingView = view;
+			pendingCaptureNanos = newestCaptureNanos;
+		}
+	}
+	
+	/**
+	 * @param view View
+	 * @return Latency histogram of the view in nanoseconds
+	 */
+	public RollingHistogram getHistogram(View view) {
+		RollingHistogram histogram = histograms.get(view.getName());
+		if(histogram == null) {
+			histogram = new RollingHistogram(BUCKET_WIDTH, BUCKET_COUNT, WINDOW_SIZE);
+			histograms.put(view.getName(), histogram);
+		}
+		return histogram;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("Latency:");
+		for (Entry<String, RollingHistogram> entry : histograms.entrySet()) {
+			RollingHistogram histogram = entry.getValue();
+			sb.append(MessageFormat.format("\n  {0}: p50 {1}ms, p95 {2}ms, p99 {3}ms ({4} frames)", 
+					entry.getKey(),
+					TimeUnit.NANOSECONDS.toMillis(histogram.getPercentile(50)),
+					TimeUnit.NANOSECONDS.toMillis(histogram.getPercentile(95)),
+					TimeUnit.NANOSECONDS.toMillis(histogram.getPercentile(99)),
+					histogram.getCount()));
+		}
+		return sb.toString();
+	}
+}
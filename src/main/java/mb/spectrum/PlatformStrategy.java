@@ -1,6 +1,9 @@
 package mb.spectrum;
 
+import java.util.List;
+
 import javafx.stage.Stage;
+import mb.spectrum.audio.AudioStats;
 
 public interface PlatformStrategy {
 	
@@ -10,6 +13,29 @@ public interface PlatformStrategy {
 	void startAudio(String audioFilePath, int bufferSize);
 	void setListener(AudioListener listener);
 	void stopAudio();
+	
+	/**
+	 * @return Names of the available capture devices
+	 */
+	List<String> getInputDevices();
+	
+	/**
+	 * Selects the capture device used the next time audio is started.
+	 * @param device Name of the device or null for the default device
+	 */
+	void setInputDevice(String device);
+	
+	/**
+	 * @param stereo Whether to capture two channels
+	 * @param bitRate Bits per sample
+	 * @return Sampling rates the selected capture device supports
+	 */
+	List<Integer> getSupportedSamplingRates(boolean stereo, int bitRate);
+	
+	/**
+	 * @return Capture statistics of the running audio or null if audio was not started
+	 */
+	AudioStats getStats();
 	void close();
 
 }
@@ -1,6 +1,7 @@
 package mb.spectrum;
 
 import static mb.spectrum.UiUtils.createConfigurableBooleanProperty;
+import static mb.spectrum.UiUtils.createConfigurableChoiceProperty;
 import static mb.spectrum.UiUtils.createConfigurableIntegerProperty;
 import static mb.spectrum.UiUtils.createUtilityPane;
 
@@ -40,6 +41,11 @@ import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 import javafx.util.Duration;
+import mb.spectrum.analysis.AnalysisEngine;
+import mb.spectrum.analysis.AnalysisFrame;
+import mb.spectrum.analysis.AnalysisWorker;
+import mb.spectrum.audio.AudioBlock;
+import mb.spectrum.audio.SpscRing;
 import mb.spectrum.embedded.EmbeddedStrategy;
 import mb.spectrum.prop.ConfigurableBooleanProperty;
 import mb.spectrum.prop.ConfigurableChoiceProperty;
@@ -51,10 +57,18 @@ import mb.spectrum.view.View;
 
 public class Spectrum extends Application {
     
-    private static final int SAMPLING_RATE = Integer.valueOf(
-            ConfigService.getInstance().getOrCreateProperty("mb.sampling-rate", String.valueOf(48000)));
-    private static final int BUFFER_SIZE = Integer.valueOf(
-            ConfigService.getInstance().getOrCreateProperty("mb.buffer-size", String.valueOf(1024)));
+    private static final String DEFAULT_INPUT_DEVICE = "Default";
+    private static final List<String> BUFFER_SIZES = Arrays.asList("256", "512", "1024", "2048", "4096");
+    
+    private static final boolean ANALYSIS_WORKER = Boolean.valueOf(
+            ConfigService.getInstance().getOrCreateProperty("mb.analysis-worker", String.valueOf(false)));
+    private static final int ANALYSIS_WORKER_PRIORITY = Integer.valueOf(
+            ConfigService.getInstance().getOrCreateProperty("mb.analysis-worker-priority", String.valueOf(Thread.MAX_PRIORITY)));
+    private static final boolean LATENCY_PROBE = Boolean.valueOf(
+            ConfigService.getInstance().getOrCreateProperty("mb.latency-probe", String.valueOf(false)));
+    
+    private static final int BLOCK_QUEUE_SIZE = 16;
+    private static final int FRAME_QUEUE_SIZE = 16;
     
     private static final int INIT_SCENE_WIDTH = 800;
     private static final int INIT_SCENE_HEIGHT = 480;
@@ -67,6 +81,15 @@ public class Spectrum extends Application {
     private Scene scene;
     private StackPane stackPane;
     
+    /* Audio */
+    private SpscRing<AudioBlock> blockQueue;
+    private long blockSequence;
+    private AnalysisEngine engine;
+    private AnalysisWorker worker;
+    private LatencyProbe latencyProbe;
+    private int samplingRate, bufferSize;
+    private boolean reconfiguringAudio;
+    
     private List<View> views;
     private View currentView;
     private int currentViewIdx;
@@ -84,9 +107,14 @@ public class Spectrum extends Application {
     private ConfigurableBooleanProperty propViewAutoRotate;
     private ConfigurableIntegerProperty propViewAutoRotateInterval;
     private ConfigurableBooleanProperty propEnableSmoothTransitions;
+    private ConfigurableChoiceProperty propInputDevice, propSamplingRate, propBufferSize;
     
     public Spectrum() {
-        views = new ViewLazyList(BUFFER_SIZE);
+        samplingRate = Integer.valueOf(
+                ConfigService.getInstance().getOrCreateProperty("mb.sampling-rate", String.valueOf(48000)));
+        bufferSize = Integer.valueOf(
+                ConfigService.getInstance().getOrCreateProperty("mb.buffer-size", String.valueOf(1024)));
+        views = new ViewLazyList(bufferSize);
         currentViewIdx = 0;
         currentView = views.get(currentViewIdx);
         
@@ -111,6 +139,9 @@ public class Spectrum extends Application {
     @Override
     public void stop() throws Exception {
         stopAudio();
+        if(latencyProbe != null) {
+            System.out.println(latencyProbe);
+        }
         strategy.close();
     }
     
@@ -152,8 +183,34 @@ public class Spectrum extends Application {
         propEnableSmoothTransitions = createConfigurableBooleanProperty(
                 keyPrefix + "enableSmoothTransitions", "Enable Smooth Transitions", true);
         
+        
+        // Audio, shares the keys read on startup so that changes survive a restart
+        List<String> devices = new ArrayList<>(strategy.getInputDevices());
+        devices.add(0, DEFAULT_INPUT_DEVICE);
+        propInputDevice = createConfigurableChoiceProperty(
+                "mb.input-device", "Input Device", devices, DEFAULT_INPUT_DEVICE);
+        strategy.setInputDevice(getInputDevice());
+        propSamplingRate = createConfigurableChoiceProperty(
+                "mb.sampling-rate", "Sampling Rate", getSamplingRates(), String.valueOf(samplingRate));
+        List<String> bufferSizes = new ArrayList<>(BUFFER_SIZES);
+        if(!bufferSizes.contains(String.valueOf(bufferSize))) {
+            bufferSizes.add(String.valueOf(bufferSize));
+        }
+        propBufferSize = createConfigurableChoiceProperty(
+                "mb.buffer-size", "Buffer Size", bufferSizes, String.valueOf(bufferSize));
+        propInputDevice.getProp().addListener((obs, oldVal, newVal) -> {
+            reconfigureAudio(oldVal, samplingRate, bufferSize);
+        });
+        propSamplingRate.getProp().addListener((obs, oldVal, newVal) -> {
+            reconfigureAudio(propInputDevice.getProp().get(), Integer.valueOf(oldVal), bufferSize);
+        });
+        propBufferSize.getProp().addListener((obs, oldVal, newVal) -> {
+            reconfigureAudio(propInputDevice.getProp().get(), samplingRate, Integer.valueOf(oldVal));
+        });
+        
         globalPropertyList = new ArrayList<>(Arrays.asList(
-                propGlobalGain, propViewAutoRotate, propViewAutoRotateInterval, propEnableSmoothTransitions));
+                propGlobalGain, propViewAutoRotate, propViewAutoRotateInterval, propEnableSmoothTransitions, 
+                propInputDevice, propSamplingRate, propBufferSize));
         
         // Poweroff
         if(strategy instanceof EmbeddedStrategy) {
@@ -166,34 +223,145 @@ public class Spectrum extends Application {
         }
     }
 
+    private String getInputDevice() {
+        String device = propInputDevice.getProp().get();
+        return DEFAULT_INPUT_DEVICE.equals(device) ? null : device;
+    }
+    
+    private List<String> getSamplingRates() {
+        List<String> rates = getSupportedSamplingRates();
+        if(!rates.contains(String.valueOf(samplingRate))) {
+            rates.add(String.valueOf(samplingRate));
+        }
+        return rates;
+    }
+    
+    private List<String> getSupportedSamplingRates() {
+        List<String> rates = new ArrayList<>();
+        for (Integer rate : strategy.getSupportedSamplingRates(true, 16)) {
+            rates.add(String.valueOf(rate));
+        }
+        return rates;
+    }
+    
+    /**
+     * Lists the sampling rates of the selected device, moving the selection to the closest rate the device 
+     * supports if it can't capture at the selected one. Nothing changes if the device reports no rates.
+     */
+    private void updateSamplingRates() {
+        List<String> rates = getSupportedSamplingRates();
+        if(rates.isEmpty()) {
+            return;
+        }
+        propSamplingRate.setValues(rates);
+        if(!rates.contains(propSamplingRate.getProp().get())) {
+            int selected = Integer.valueOf(propSamplingRate.getProp().get());
+            String closest = rates.get(0);
+            for (String rate : rates) {
+                if(Math.abs(Integer.valueOf(rate) - selected) < Math.abs(Integer.valueOf(closest) - selected)) {
+                    closest = rate;
+                }
+            }
+            propSamplingRate.getProp().set(closest);
+        }
+    }
+    
+    /**
+     * Reopens the audio with the currently selected device, sampling rate and buffer size, and hands the 
+     * new configuration to the analysis and the views. If the audio can't be opened, the previous 
+     * configuration is restored.
+     * @param previousDevice Device choice used so far
+     * @param previousSamplingRate Sampling rate used so far
+     * @param previousBufferSize Buffer size used so far
+     */
+    private void reconfigureAudio(String previousDevice, int previousSamplingRate, int previousBufferSize) {
+        if(reconfiguringAudio) {
+            return;
+        }
+        reconfiguringAudio = true;
+        
+        // The current view is hidden while reconfiguring, so that it rebuilds itself when shown again
+        currentView.onHide();
+        stopAudio();
+        try {
+            strategy.setInputDevice(getInputDevice());
+            updateSamplingRates();
+            samplingRate = Integer.valueOf(propSamplingRate.getProp().get());
+            bufferSize = Integer.valueOf(propBufferSize.getProp().get());
+            startAudio();
+        } catch (RuntimeException e) {
+            if(Boolean.getBoolean("spectrumDebug")) {
+                System.out.println("Audio reconfiguration failed, restoring the previous settings: " + e);
+            }
+            stopAudio();
+            propInputDevice.getProp().set(previousDevice);
+            strategy.setInputDevice(getInputDevice());
+            updateSamplingRates();
+            propSamplingRate.getProp().set(String.valueOf(previousSamplingRate));
+            propBufferSize.getProp().set(String.valueOf(previousBufferSize));
+            samplingRate = previousSamplingRate;
+            bufferSize = previousBufferSize;
+            startAudio();
+        } finally {
+            currentView.onShow();
+            reconfiguringAudio = false;
+        }
+    }
+
     private void startAudio() {
         
+        // Blocks are handed over from the audio thread to the FX thread through a preallocated lock-free queue
+        blockQueue = new SpscRing<>(BLOCK_QUEUE_SIZE, () -> new AudioBlock(bufferSize));
+        engine = AnalysisEngine.getInstance();
+        engine.configure(samplingRate, bufferSize);
+        
+        // Optionally move the analysis to a dedicated thread, leaving only the copy to the audio callback
+        if(ANALYSIS_WORKER) {
+            worker = new AnalysisWorker(engine, blockQueue, FRAME_QUEUE_SIZE, ANALYSIS_WORKER_PRIORITY);
+            worker.start();
+        }
+        
         String path = getParameters().getNamed().get("file");
         if(path != null) {
-            strategy.startAudio(path, BUFFER_SIZE);
+            strategy.startAudio(path, bufferSize);
         } else {
-            strategy.startAudio(true, BUFFER_SIZE, SAMPLING_RATE, 16);
+            strategy.startAudio(true, bufferSize, samplingRate, 16);
         }
         
         strategy.setListener(new AudioListener() {
             public void samples(float[] left, float[] right) {
+                long captureNanos = System.nanoTime();
                 
-                // Global gain
+                // Global gain is applied while copying into the queue. If the queue is full
+                // the block is dropped, which shows as a gap in the sequence numbers.
                 float gain = propGlobalGain.getProp().get() / 100f;
-                for (int i = 0; i < left.length; i++) {
-                    left[i] = left[i] * gain;
-                }
-                for (int i = 0; i < right.length; i++) {
-                    right[i] = right[i] * gain;
+                AudioBlock block = blockQueue.claim();
+                if(block != null) {
+                    block.write(left, right, gain, blockSequence, captureNanos);
+                    blockQueue.publish();
+                    if(worker != null) {
+                        worker.blockAvailable();
+                    }
+                } else {
+                    strategy.getStats().blockDropped();
                 }
-                
-                currentView.dataAvailable(left, right);
+                blockSequence++;
             }
         });
     }
     
     private void stopAudio() {
         strategy.stopAudio();
+        if(Boolean.getBoolean("spectrumDebug") && strategy.getStats() != null) {
+            System.out.println(strategy.getStats());
+        }
+        if(worker != null) {
+            worker.stop();
+            if(Boolean.getBoolean("spectrumDebug")) {
+                System.out.println(worker);
+            }
+            worker = null;
+        }
     }
     
     private void setupStage(Stage stage) {
@@ -234,9 +402,46 @@ public class Spectrum extends Application {
     }
     
     private void startFrameListener() {
+        if(LATENCY_PROBE) {
+            latencyProbe = new LatencyProbe();
+        }
+        
         new AnimationTimer() {
             public void handle(long now) {
+                
+                if(latencyProbe != null) {
+                    latencyProbe.pulseStarted();
+                }
+                
+                if(worker != null) {
+                    
+                    // Drain all frames analysed by the worker since the last pulse
+                    SpscRing<AnalysisFrame> frameQueue = worker.getFrameQueue();
+                    AnalysisFrame frame;
+                    while((frame = frameQueue.peek()) != null) {
+                        currentView.dataAvailable(frame);
+                        if(latencyProbe != null) {
+                            latencyProbe.frameConsumed(frame.getCaptureNanos());
+                        }
+                        frameQueue.release();
+                    }
+                } else {
+                    
+                    // Drain all blocks captured since the last pulse, analysing each of them once
+                    AudioBlock block;
+                    while((block = blockQueue.peek()) != null) {
+                        currentView.dataAvailable(engine.process(block));
+                        if(latencyProbe != null) {
+                            latencyProbe.frameConsumed(block.getCaptureNanos());
+                        }
+                        blockQueue.release();
+                    }
+                }
+                
                 currentView.nextFrame();
+                if(latencyProbe != null) {
+                    latencyProbe.frameRendered(currentView);
+                }
             }
         }.start();
     }
@@ -344,9 +344,14 @@ public class UiUtils {
 	
 	public static <T extends Enum<T>> ConfigurableChoiceProperty createConfigurableChoiceProperty(
 			String key, String name, Class<T> enumType) {
+		return UiUtils.createConfigurableChoiceProperty(key, name, enumType, enumType.getEnumConstants()[0]);
+	}
+	
+	public static <T extends Enum<T>> ConfigurableChoiceProperty createConfigurableChoiceProperty(
+			String key, String name, Class<T> enumType, T defaultValue) {
 		return UiUtils.createConfigurableChoiceProperty(key, name, 
 				Stream.of(enumType.getEnumConstants()).map(String::valueOf).collect(Collectors.toList()), 
-				enumType.getEnumConstants()[0].toString());
+				defaultValue.toString());
 	}
 	
 	public static ConfigurableChoiceProperty createConfigurableChoiceProperty(String key, String name, 
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import mb.spectrum.view.AnalogMeterView;
 import mb.spectrum.view.AnalogMeterView.Orientation;
 import mb.spectrum.view.GaugeView;
+import mb.spectrum.view.LoudnessMeterView;
 import mb.spectrum.view.SoundWaveView;
 import mb.spectrum.view.SpectrumAreaView;
 import mb.spectrum.view.SpectrumBarView;
@@ -12,6 +13,7 @@ import mb.spectrum.view.StereoGaugeView;
 import mb.spectrum.view.StereoLevelsLedView;
 import mb.spectrum.view.StereoLevelsLedView3D;
 import mb.spectrum.view.StereoLevelsView;
+import mb.spectrum.view.ToneMonitorView;
 import mb.spectrum.view.View;
 
 /**
@@ -103,6 +105,22 @@ public class ViewLazyList extends ArrayList<View> {
             }
             break;
 
+        case 9:
+            try {
+                view = super.get(index);
+            } catch (IndexOutOfBoundsException e) {
+                add(index, view = new LoudnessMeterView());
+            }
+            break;
+            
+        case 10:
+            try {
+                view = super.get(index);
+            } catch (IndexOutOfBoundsException e) {
+                add(index, view = new ToneMonitorView());
+            }
+            break;
+
         default:
             view = super.get(index);
             break;
@@ -113,6 +131,6 @@ public class ViewLazyList extends ArrayList<View> {
 
     @Override
     public int size() {
-        return Math.max(9, super.size());
+        return Math.max(11, super.size());
     }
 }
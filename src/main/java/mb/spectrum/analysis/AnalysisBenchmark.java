@@ -0,0 +1,347 @@
+package mb.spectrum.analysis;
+
+import static java.text.MessageFormat.format;
+
+import java.util.Random;
+
+import ddf.minim.analysis.FFT;
+import ddf.minim.analysis.FourierTransform;
+import mb.spectrum.Utils;
+
+/**
+ * Micro benchmarks of the analysis hot paths, run from the command line:
+ * <pre>
+ * java -cp spectrum-analyzer.jar mb.spectrum.analysis.AnalysisBenchmark
+ * </pre>
+ * Each benchmark is warmed up first, then run for a fixed time, reporting the average time per operation.
+ */
+public class AnalysisBenchmark {
+	
+	private static final int SAMPLING_RATE = 48000;
+	private static final int[] FFT_SIZES = { 2048, 4096, 8192 };
+	private static final long WARMUP_NANOS = 2_000_000_000L;
+	private static final long RUN_NANOS = 3_000_000_000L;
+	
+	// Largest error allowed for the fast decibel conversion
+	private static final double MAX_DB_ERROR = 0.01;
+	
+	// Largest error allowed for the level of a tone, leaving room for the leakage of its negative frequency
+	private static final double MAX_TONE_ERROR = 1;
+	
+	// Keeps the JIT from eliminating the benchmarked code
+	private static double sink;
+	
+	public static void main(String[] args) {
+		checkDecibels();
+		checkTones();
+		benchmarkLevels();
+		benchmarkTruePeak();
+		benchmarkDecibels();
+		benchmarkTones();
+		benchmarkFFT();
+		benchmarkConstantQ();
+	}
+	
+	/**
+	 * Compares the single pass level metering of {@link AnalysisFrame} against mixing down and calling 
+	 * the per channel helpers of {@link Utils}, as formerly done for every block.
+	 */
+	private static void benchmarkLevels() {
+		System.out.println("Levels: Utils.peakLevel + rmsLevel per channel vs LevelMeter");
+		for (int size : new int[] { 512, 1024, 2048 }) {
+			AnalysisFrame frame = createNoiseFrame(size);
+			float[] left = frame.getLeft(), right = frame.getRight();
+			float[] mono = new float[size];
+			Runnable helpers = () -> {
+				for (int i = 0; i < size; i++) {
+					mono[i] = (left[i] + right[i]) / 2.0F;
+				}
+				sink += Utils.peakLevel(left) + Utils.rmsLevel(left)
+						+ Utils.peakLevel(right) + Utils.rmsLevel(right)
+						+ Utils.peakLevel(mono) + Utils.rmsLevel(mono);
+			};
+			Levels leftLevels = new Levels(), rightLevels = new Levels(), monoLevels = new Levels();
+			Runnable kernel = () -> {
+				LevelMeter.measure(left, right, mono, leftLevels, rightLevels, monoLevels);
+				sink += leftLevels.getPeak() + leftLevels.getRms() + rightLevels.getPeak() + rightLevels.getRms()
+						+ monoLevels.getPeak() + monoLevels.getRms();
+			};
+			
+			double helpersNanos = measure(helpers);
+			double kernelNanos = measure(kernel);
+			
+			// Both must agree on the levels
+			LevelMeter.measure(left, right, mono, leftLevels, rightLevels, monoLevels);
+			double maxDiff = Math.max(
+					Math.abs(leftLevels.getRms() - Utils.rmsLevel(left)) / Utils.rmsLevel(left),
+					Math.abs(monoLevels.getRms() - Utils.rmsLevel(mono)) / Utils.rmsLevel(mono));
+			
+			System.out.println(format("  {0,number,#} samples: helpers {1,number,#.##} us, kernel {2,number,#.##} us, speed-up {3,number,#.##}x, max RMS error {4}",
+					size, helpersNanos / 1000, kernelNanos / 1000, helpersNanos / kernelNanos, maxDiff));
+		}
+	}
+	
+	/**
+	 * Measures the true peak of both channels at 48kHz in blocks of 1024 samples, and compares the time with 
+	 * the block period.
+	 */
+	private static void benchmarkTruePeak() {
+		int blockSize = 1024;
+		double periodNanos = 1e9 * blockSize / SAMPLING_RATE;
+		AnalysisFrame frame = createNoiseFrame(blockSize);
+		TruePeakFeature feature = new TruePeakFeature();
+		TruePeakFeature.Result result = feature.createResult();
+		double nanos = measure(() -> {
+			feature.process(frame, result);
+			sink += result.getLeft();
+		});
+		System.out.println(format("True peak: 4x oversampling of 2 channels, {0,number,#.#} us per block, {1,number,#.##}% of the period",
+				nanos / 1000, 100 * nanos / periodNanos));
+	}
+	
+	/**
+	 * Measures both tone tracking methods on 5 harmonics of mains hum at 48kHz in blocks of 1024 samples, 
+	 * checking the level read for a sinusoid at -6dB.
+	 */
+	private static void benchmarkTones() {
+		int blockSize = 1024, windowSize = SAMPLING_RATE / 2;
+		double periodNanos = 1e9 * blockSize / SAMPLING_RATE;
+		float[] frequencies = { 50, 100, 150, 200, 250 };
+		for (ToneFeature.Method method : ToneFeature.Method.values()) {
+			ToneFeature feature = new ToneFeature(method, frequencies, windowSize, SAMPLING_RATE);
+			ToneFeature.Result result = feature.createResult();
+			
+			// A full window of a 0.5 amplitude sinusoid at the fundamental
+			float[] samples = new float[blockSize];
+			AnalysisFrame frame = new AnalysisFrame(blockSize);
+			for (int n = 0; n < windowSize; n += blockSize) {
+				for (int i = 0; i < blockSize; i++) {
+					samples[i] = (float) (0.5 * Math.sin(2 * Math.PI * frequencies[0] * (n + i) / SAMPLING_RATE));
+				}
+				frame.update(samples, samples, 0, 0);
+				feature.process(frame, result);
+			}
+			float level = result.getLevelsDB()[0];
+			
+			AnalysisFrame noise = createNoiseFrame(blockSize);
+			double nanos = measure(() -> {
+				feature.process(noise, result);
+				sink += result.getLevelsDB()[0];
+			});
+			System.out.println(format("Tones: {0} of {1} frequencies, {2,number,#.#} us per block, {3,number,#.##}% of the period, {4,number,#.###} dB for -6.021 dB",
+					method, frequencies.length, nanos / 1000, 100 * nanos / periodNanos, level));
+		}
+	}
+	
+	/**
+	 * Checks the level both tone methods read for a sinusoid at -6dB, on and off the bins of the window, failing 
+	 * with an exception when it is out of bounds.
+	 */
+	private static void checkTones() {
+		
+		// Frequency and window size in ms: whole cycles, then fractional cycles in a long and a short window
+		double[][] cases = { { 50, 500 }, { 59, 500 }, { 50, 50 }, { 1234.5, 100 } };
+		for (ToneFeature.Method method : ToneFeature.Method.values()) {
+			for (double[] c : cases) {
+				float level = readTone(method, (float) c[0], (int) (SAMPLING_RATE * c[1] / 1000));
+				System.out.println(format("Tones: {0} at {1} Hz in {2} ms, {3,number,#.###} dB for -6.021 dB", 
+						method, c[0], c[1], level));
+				if(!(Math.abs(level + 6.021) <= MAX_TONE_ERROR)) {
+					throw new IllegalStateException(method + " reads " + level + " dB at " + c[0] + " Hz");
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return Level read for a 0.5 amplitude sinusoid after three windows
+	 */
+	private static float readTone(ToneFeature.Method method, float frequency, int windowSize) {
+		int blockSize = 1024;
+		ToneFeature feature = new ToneFeature(method, new float[] { frequency }, windowSize, SAMPLING_RATE);
+		ToneFeature.Result result = feature.createResult();
+		float[] samples = new float[blockSize];
+		AnalysisFrame frame = new AnalysisFrame(blockSize);
+		for (int n = 0; n < windowSize * 3; n += blockSize) {
+			for (int i = 0; i < blockSize; i++) {
+				samples[i] = (float) (0.5 * Math.sin(2 * Math.PI * frequency * (n + i) / SAMPLING_RATE));
+			}
+			frame.update(samples, samples, 0, 0);
+			feature.process(frame, result);
+		}
+		return result.getLevelsDB()[0];
+	}
+	
+	/**
+	 * Compares the table based dB conversion against {@link Math#log10(double)} on a spectrum worth of bands, 
+	 * and checks its error over the whole range of normal floats.
+	 */
+	private static void benchmarkDecibels() {
+		System.out.println("Decibels: Utils.toDB vs Decibels.toDBExact vs Decibels.toDB, bulk");
+		Random random = new Random(0);
+		for (int size : new int[] { 64, 256, 1024 }) {
+			float[] values = new float[size];
+			float[] valuesDB = new float[size];
+			for (int i = 0; i < size; i++) {
+				values[i] = (float) Math.pow(10, -8 * random.nextDouble());
+			}
+			double utilsNanos = measure(() -> {
+				for (int i = 0; i < values.length; i++) {
+					valuesDB[i] = (float) Utils.toDB(values[i]);
+				}
+				sink += valuesDB[0];
+			});
+			double exactNanos = measure(() -> {
+				Decibels.toDBExact(values, valuesDB, values.length);
+				sink += valuesDB[0];
+			});
+			double fastNanos = measure(() -> {
+				Decibels.toDB(values, valuesDB, values.length);
+				sink += valuesDB[0];
+			});
+			System.out.println(format("  {0,number,#} values: Utils {1,number,#.##} us, exact {2,number,#.##} us, fast {3,number,#.##} us, speed-up {4,number,#.##}x",
+					size, utilsNanos / 1000, exactNanos / 1000, fastNanos / 1000, utilsNanos / fastNanos));
+		}
+	}
+	
+	/**
+	 * Checks the fast decibel conversion against the exact one, failing with an exception, and so a non-zero 
+	 * exit code, when it is out of bounds. Run before the benchmarks so that it can gate a build.
+	 */
+	private static void checkDecibels() {
+		
+		// Every exponent of the normal floats, with random mantissas as well as the table edges
+		Random random = new Random(0);
+		double maxError = 0;
+		for (int exponent = 1; exponent < 0xff; exponent++) {
+			for (int i = 0; i < 4096; i++) {
+				int mantissa = i < 256 ? i << 15 : random.nextInt(1 << 23);
+				float value = Float.intBitsToFloat(exponent << 23 | mantissa);
+				maxError = Math.max(maxError, Math.abs(Decibels.toDB(value) - Decibels.toDBExact(value)));
+			}
+		}
+		boolean special = Decibels.toDB(0f) == Float.NEGATIVE_INFINITY 
+				&& Float.isNaN(Decibels.toDB(-1f)) && Float.isNaN(Decibels.toDB(Float.NaN))
+				&& Decibels.toDB(Float.POSITIVE_INFINITY) == Float.POSITIVE_INFINITY 
+				&& Math.abs(Decibels.toDB(Float.MIN_VALUE) - Decibels.toDBExact(Float.MIN_VALUE)) < 1e-3;
+		System.out.println(format("Decibels: max error {0} dB, special values {1}", String.valueOf(maxError), special ? "ok" : "FAILED"));
+		if(!(maxError <= MAX_DB_ERROR)) {
+			throw new IllegalStateException("Decibel conversion error of " + maxError + " dB exceeds " + MAX_DB_ERROR + " dB");
+		}
+		if(!special) {
+			throw new IllegalStateException("Decibel conversion of special values failed");
+		}
+	}
+	
+	/**
+	 * Compares the spectrum of {@link SpectrumFeature} against Minim's forward FFT followed by the log averages,
+	 * and checks the bins of both FFTs against each other.
+	 */
+	private static void benchmarkFFT() {
+		System.out.println("Spectrum: Minim FFT.forward + getAvg vs RealFFT + band layout");
+		for (int size : FFT_SIZES) {
+			int bandsPerOctave = size / 1024 * 4;
+			AnalysisFrame frame = createNoiseFrame(size);
+			
+			// Minim, as formerly done in AbstractSpectrumView
+			FFT minim = new FFT(size, SAMPLING_RATE);
+			minim.window(FourierTransform.BLACKMAN);
+			minim.logAverages(24, bandsPerOctave);
+			float[] buffer = new float[size];
+			double[] minimBands = new double[minim.avgSize()];
+			Runnable minimSpectrum = () -> {
+				System.arraycopy(frame.getMono(), 0, buffer, 0, size);
+				minim.forward(buffer);
+				for (int i = 0; i < minimBands.length; i++) {
+					minimBands[i] = Utils.toDB(minim.getAvg(i), minim.timeSize());
+				}
+				sink += minimBands[0];
+			};
+			
+			// A hop of the whole window computes one spectrum per frame
+			SpectrumFeature feature = new SpectrumFeature(size, size, SAMPLING_RATE, 
+					BandLayout.logAverages(size, SAMPLING_RATE, 24, bandsPerOctave));
+			SpectrumFeature.Result result = feature.createResult();
+			Runnable featureSpectrum = () -> {
+				feature.process(frame, result);
+				sink += result.getBandValuesDB()[0];
+			};
+			
+			double minimNanos = measure(minimSpectrum);
+			double featureNanos = measure(featureSpectrum);
+			
+			// Bins of both transforms without window, relative to the largest one
+			FFT minimRaw = new FFT(size, SAMPLING_RATE);
+			float[] raw = frame.getMono().clone();
+			minimRaw.forward(raw);
+			RealFFT fft = RealFFT.forSize(size);
+			fft.forward(raw);
+			double maxDiff = 0, maxBin = 0;
+			for (int k = 0; k <= size / 2; k++) {
+				maxDiff = Math.max(maxDiff, Math.abs(minimRaw.getBand(k) - fft.magnitude(raw, k)));
+				maxBin = Math.max(maxBin, minimRaw.getBand(k));
+			}
+			
+			System.out.println(format("  {0,number,#} points: Minim {1,number,#.#} us, RealFFT {2,number,#.#} us, speed-up {3,number,#.##}x, max bin error {4}",
+					size, minimNanos / 1000, featureNanos / 1000, minimNanos / featureNanos, maxDiff / maxBin));
+		}
+	}
+	
+	/**
+	 * Measures the constant-Q spectrum at 44.1kHz, computing one spectrum per block of 1024 samples, and 
+	 * compares the time with the block period the audio thread has.
+	 */
+	private static void benchmarkConstantQ() {
+		int samplingRate = 44100, blockSize = 1024, binsPerOctave = 24, minFrequency = 30;
+		double periodNanos = 1e9 * blockSize / samplingRate;
+		System.out.println(format("Constant-Q: {0} bins per octave from {1}Hz, block period {2,number,#} us", 
+				binsPerOctave, minFrequency, periodNanos / 1000));
+		AnalysisFrame frame = createNoiseFrame(blockSize);
+		for (int size : new int[] { 4096, 8192, 16384 }) {
+			ConstantQTransform cq = new ConstantQTransform(size, samplingRate, minFrequency, binsPerOctave);
+			SpectrumFeature feature = new SpectrumFeature(size, blockSize, samplingRate, cq);
+			SpectrumFeature.Result result = feature.createResult();
+			double nanos = measure(() -> {
+				feature.process(frame, result);
+				sink += result.getBandValuesDB()[0];
+			});
+			System.out.println(format("  {0,number,#} points: {1} bins, {2,number,#} kernel values, {3,number,#.#} us per block, {4,number,#.##}% of the period",
+					size, cq.getBandCount(), cq.getKernelSize(), nanos / 1000, 100 * nanos / periodNanos));
+		}
+	}
+	
+	private static AnalysisFrame createNoiseFrame(int size) {
+		Random random = new Random(0);
+		float[] left = new float[size];
+		float[] right = new float[size];
+		for (int i = 0; i < size; i++) {
+			left[i] = random.nextFloat() * 2 - 1;
+			right[i] = random.nextFloat() * 2 - 1;
+		}
+		AnalysisFrame frame = new AnalysisFrame(size);
+		frame.update(left, right, 0, 0);
+		return frame;
+	}
+	
+	/**
+	 * @return Average time per run in nanoseconds
+	 */
+	private static double measure(Runnable runnable) {
+		long start = System.nanoTime();
+		while(System.nanoTime() - start < WARMUP_NANOS) {
+			runnable.run();
+		}
+		
+		long runs = 0;
+		start = System.nanoTime();
+		long elapsed;
+		do {
+			for (int i = 0; i < 100; i++) {
+				runnable.run();
+			}
+			runs += 100;
+			elapsed = System.nanoTime() - start;
+		} while(elapsed < RUN_NANOS);
+		return (double) elapsed / runs;
+	}
+}
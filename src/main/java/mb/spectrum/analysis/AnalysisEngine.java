@@ -0,0 +1,119 @@
+package mb.spectrum.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mb.spectrum.ConfigService;
+import mb.spectrum.audio.AudioBlock;
+
+/**
+ * Central analysis of the incoming audio. Every block is analysed exactly once, regardless of how many 
+ * views consume the outcome: the basic per channel levels are always computed, while more expensive 
+ * analysis such as spectrum bands is computed only for the {@link AnalysisFeature}s currently added.
+ */
+public class AnalysisEngine {
+	
+	private static AnalysisEngine ref;
+	
+	private volatile int samplingRate, bufferSize;
+	private AnalysisFrame frame;
+	
+	// Copy-on-write, so that processing never has to lock
+	private volatile AnalysisFeature<?>[] features;
+	
+	public static AnalysisEngine getInstance() {
+		synchronized (AnalysisEngine.class) {
+			if(ref == null) {
+				ConfigService cs = ConfigService.getInstance();
+				ref = new AnalysisEngine(
+						Integer.valueOf(cs.getOrCreateProperty("mb.sampling-rate", String.valueOf(48000))), 
+						Integer.valueOf(cs.getOrCreateProperty("mb.buffer-size", String.valueOf(1024))));
+			}
+		}
+		return ref;
+	}
+	
+	private AnalysisEngine(int samplingRate, int bufferSize) {
+		this.samplingRate = samplingRate;
+		this.bufferSize = bufferSize;
+		frame = new AnalysisFrame(bufferSize);
+		features = new AnalysisFeature<?>[0];
+	}
+	
+	/**
+	 * Changes the sampling rate and block size of the analysed audio. Must not be called while blocks 
+	 * are being processed. Frames created before are no longer valid, and features depending on either 
+	 * value have to be replaced by their owners.
+	 * @param samplingRate Sampling rate
+	 * @param bufferSize Number of samples per block
+	 */
+	public synchronized void configure(int samplingRate, int bufferSize) {
+		this.samplingRate = samplingRate;
+		if(bufferSize != this.bufferSize) {
+			this.bufferSize = bufferSize;
+			frame = new AnalysisFrame(bufferSize);
+		}
+	}
+	
+	/**
+	 * Analyses a block and returns the resulting frame. The frame is reused for the next block.
+	 * @param block Block of samples
+	 * @return Analysis frame
+	 */
+	public AnalysisFrame process(AudioBlock block) {
+		return process(block, frame);
+	}
+	
+	/**
+	 * Analyses a block into the given frame.
+	 * @param block Block of samples
+	 * @param frame Frame to be filled, created by {@link #createFrame()}
+	 * @return The given frame
+	 */
+	public AnalysisFrame process(AudioBlock block, AnalysisFrame frame) {
+		frame.bind(features);
+		frame.update(block.getLeft(), block.getRight(), block.getSequence(), block.getCaptureNanos());
+		frame.process();
+		return frame;
+	}
+	
+	/**
+	 * Creates an empty frame matching the buffer size of the engine.
+	 * @return New frame
+	 */
+	public AnalysisFrame createFrame() {
+		return new AnalysisFrame(bufferSize);
+	}
+	
+	/**
+	 * Adds a feature to be computed for every subsequent block. Adding the same feature twice has no effect.
+	 * @param feature Feature
+	 */
+	public synchronized void addFeature(AnalysisFeature<?> feature) {
+		List<AnalysisFeature<?>> list = new ArrayList<>(Arrays.asList(features));
+		if(!list.contains(feature)) {
+			list.add(feature);
+			features = list.toArray(new AnalysisFeature<?>[list.size()]);
+		}
+	}
+	
+	/**
+	 * Stops computing a feature.
+	 * @param feature Feature
+	 */
+	public synchronized void removeFeature(AnalysisFeature<?> feature) {
+		List<AnalysisFeature<?>> list = new ArrayList<>(Arrays.asList(features));
+		if(list.remove(feature)) {
+			features = list.toArray(new AnalysisFeature<?>[list.size()]);
+		}
+	}
+
+	public int getSamplingRate() {
+		return samplingRate;
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+}
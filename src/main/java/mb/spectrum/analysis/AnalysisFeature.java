@@ -0,0 +1,24 @@
+package mb.spectrum.analysis;
+
+/**
+ * Analysis computed by {@link AnalysisEngine} once per audio block on behalf of any number of consumers.
+ * <p>
+ * The feature keeps its own running state, while the outcome of each block is written into a preallocated 
+ * result holder owned by the {@link AnalysisFrame}, so that publishing a frame requires no allocation.
+ * @param <R> Type of the result holder
+ */
+public interface AnalysisFeature<R> {
+	
+	/**
+	 * Creates an empty result holder. Called once per frame when the feature is added to the engine.
+	 * @return New result holder
+	 */
+	R createResult();
+	
+	/**
+	 * Analyses the block carried by the frame and stores the outcome in the result holder.
+	 * @param frame Frame with the samples and basic levels of the current block
+	 * @param result Result holder to be updated
+	 */
+	void process(AnalysisFrame frame, R result);
+}
@@ -0,0 +1,135 @@
+package mb.spectrum.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Outcome of the analysis of a single audio block, published by {@link AnalysisEngine} to all views.
+ * <p>
+ * Frames are preallocated and reused by the engine, so that analysing a block allocates nothing at steady state. 
+ * Consumers must treat them as read-only and must not keep references to the frame or any of its arrays beyond 
+ * the call they were handed in.
+ */
+public class AnalysisFrame {
+	
+	private static final AnalysisFeature<?>[] NO_FEATURES = new AnalysisFeature<?>[0];
+	
+	private final float[] left, right, mono;
+	private final Levels leftLevels, rightLevels, monoLevels;
+	private long sequence, captureNanos;
+	
+	private AnalysisFeature<?>[] features;
+	private Object[] results;
+	
+	AnalysisFrame(int size) {
+		left = new float[size];
+		right = new float[size];
+		mono = new float[size];
+		leftLevels = new Levels();
+		rightLevels = new Levels();
+		monoLevels = new Levels();
+		features = NO_FEATURES;
+		results = new Object[0];
+	}
+	
+	/**
+	 * Copies the samples of a block into the frame, mixes them down and computes the per channel levels.
+	 */
+	void update(float[] left, float[] right, long sequence, long captureNanos) {
+		System.arraycopy(left, 0, this.left, 0, this.left.length);
+		System.arraycopy(right, 0, this.right, 0, this.right.length);
+		this.sequence = sequence;
+		this.captureNanos = captureNanos;
+		LevelMeter.measure(this.left, this.right, mono, leftLevels, rightLevels, monoLevels);
+	}
+	
+	/**
+	 * Makes sure there is a result holder for each of the given features. Holders of features 
+	 * that are already known are preserved, so this only allocates when the feature set changes.
+	 */
+	void bind(AnalysisFeature<?>[] features) {
+		if(this.features != features) {
+			Object[] results = new Object[features.length];
+			for (int i = 0; i < features.length; i++) {
+				int idx = indexOf(features[i]);
+				results[i] = idx >= 0 ? this.results[idx] : features[i].createResult();
+			}
+			this.features = features;
+			this.results = results;
+		}
+	}
+	
+	/**
+	 * Runs all bound features against the current block.
+	 */
+	void process() {
+		for (int i = 0; i < features.length; i++) {
+			process(features[i], results[i]);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private <R> void process(AnalysisFeature<R> feature, Object result) {
+		feature.process(this, (R) result);
+	}
+	
+	private int indexOf(AnalysisFeature<?> feature) {
+		return Arrays.asList(features).indexOf(feature);
+	}
+	
+	/**
+	 * Returns the result of a feature for this frame.
+	 * @param feature Feature added to the engine
+	 * @return Result or <code>null</code> if the feature was not active when the frame was analysed
+	 */
+	@SuppressWarnings("unchecked")
+	public <R> R getResult(AnalysisFeature<R> feature) {
+		for (int i = 0; i < features.length; i++) {
+			if(features[i] == feature) {
+				return (R) results[i];
+			}
+		}
+		return null;
+	}
+	
+	public float[] getLeft() {
+		return left;
+	}
+	
+	public float[] getRight() {
+		return right;
+	}
+	
+	/**
+	 * @return Both channels mixed down to mono
+	 */
+	public float[] getMono() {
+		return mono;
+	}
+	
+	public int size() {
+		return left.length;
+	}
+	
+	public Levels getLeftLevels() {
+		return leftLevels;
+	}
+	
+	public Levels getRightLevels() {
+		return rightLevels;
+	}
+	
+	public Levels getMonoLevels() {
+		return monoLevels;
+	}
+	
+	public long getSequence() {
+		return sequence;
+	}
+	
+	/**
+	 * @return Capture time stamp of the block as given by {@link System#nanoTime()}
+	 */
+	public long getCaptureNanos() {
+		return captureNanos;
+	}
+}
@@ -0,0 +1,144 @@
+package mb.spectrum.analysis;
+
+import java.text.MessageFormat;
+import java.util.concurrent.locks.LockSupport;
+
+import mb.spectrum.audio.AudioBlock;
+import mb.spectrum.audio.SpscRing;
+
+/**
+ * Dedicated thread running the analysis off the audio callback thread.
+ * <p>
+ * The worker consumes the blocks queued by the audio callback, analyses them with the {@link AnalysisEngine} and 
+ * publishes the resulting frames to a second queue drained by the FX thread. The audio callback is thus reduced 
+ * to a copy, no matter how expensive the analysis is. When either side falls behind, the affected blocks or frames 
+ * are dropped and counted rather than blocking.
+ */
+public class AnalysisWorker implements Runnable {
+	
+	// Upper bound of the sleep when idle, in case a wake up gets lost
+	private static final long IDLE_PARK_NS = 5000000;
+	
+	private final AnalysisEngine engine;
+	private final SpscRing<AudioBlock> blockQueue;
+	private final SpscRing<AnalysisFrame> frameQueue;
+	private final Thread thread;
+	private volatile boolean running;
+	
+	// Written by the worker thread only
+	private volatile long processedBlocks;
+	private volatile int maxBacklog;
+	
+	/**
+	 * @param engine Analysis engine
+	 * @param blockQueue Queue filled by the audio callback
+	 * @param frameQueueSize Size of the frame queue, must be a power of two
+	 * @param priority Thread priority. Note that the JVM honours it on Linux only when 
+	 * started with <code>-XX:ThreadPriorityPolicy=1</code> as root.
+	 */
+	public AnalysisWorker(AnalysisEngine engine, SpscRing<AudioBlock> blockQueue, int frameQueueSize, int priority) {
+		this.engine = engine;
+		this.blockQueue = blockQueue;
+		frameQueue = new SpscRing<>(frameQueueSize, engine::createFrame);
+		thread = new Thread(this, "Analysis Worker");
+		thread.setDaemon(true);
+		thread.setPriority(priority);
+	}
+	
+	public void start() {
+		running = true;
+		thread.start();
+	}
+	
+	public void stop() {
+		running = false;
+		LockSupport.unpark(thread);
+		try {
+			thread.join(1000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Wakes the worker up. Called by the audio thread after a block is queued.
+	 */
+	public void blockAvailable() {
+		LockSupport.unpark(thread);
+	}
+
+	@Override
+	public void run() {
+		while(running) {
+			AudioBlock block = blockQueue.peek();
+			if(block == null) {
+				LockSupport.parkNanos(this, IDLE_PARK_NS);
+				continue;
+			}
+			
+			int backlog = blockQueue.size();
+			if(backlog > maxBacklog) {
+				maxBacklog = backlog;
+			}
+			
+			AnalysisFrame frame = frameQueue.claim();
+			if(frame != null) {
+				engine.process(block, frame);
+				frameQueue.publish();
+			} else {
+				
+				// The FX thread is behind, the frame is lost but the running state of the features stays intact
+				engine.process(block);
+			}
+			blockQueue.release();
+			processedBlocks++;
+		}
+	}
+	
+	/**
+	 * @return Queue of analysed frames to be drained by the FX thread
+	 */
+	public SpscRing<AnalysisFrame> getFrameQueue() {
+		return frameQueue;
+	}
+	
+	public long getProcessedBlocks() {
+		return processedBlocks;
+	}
+	
+	/**
+	 * @return Number of blocks dropped by the audio callback because the worker was behind
+	 */
+	public long getDroppedBlocks() {
+		return blockQueue.getDropped();
+	}
+	
+	/**
+	 * @return Number of analysed frames dropped because the FX thread was behind
+	 */
+	public long getDroppedFrames() {
+		return frameQueue.getDropped();
+	}
+	
+	/**
+	 * @return Number of blocks currently waiting to be analysed
+	 */
+	public int getBacklog() {
+		return blockQueue.size();
+	}
+	
+	/**
+	 * @return Highest number of blocks seen waiting to be analysed
+	 */
+	public int getMaxBacklog() {
+		return maxBacklog;
+	}
+	
+	@Override
+	public String toString() {
+		return MessageFormat.format(
+				"Analysis worker: processed {0}, dropped blocks {1}, dropped frames {2}, backlog {3}/{4}, max backlog {5}", 
+				getProcessedBlocks(), getDroppedBlocks(), getDroppedFrames(), 
+				getBacklog(), blockQueue.capacity(), getMaxBacklog());
+	}
+}
@@ -0,0 +1,258 @@
+package mb.spectrum.analysis;
+
+/**
+ * Mapping of FFT bins to frequency bands, compiled into a sparse weight matrix.
+ * <p>
+ * Every bin is taken as covering half a bin width on each side of its center frequency. A band is weighted with the
+ * fraction of each bin that falls within its edges, so that bands narrower than a bin, as found in the bass region,
+ * are still placed accurately. Applying the layout is a single pass over the non-zero weights, computing the bin
+ * magnitudes straight from the packed FFT output.
+ */
+public class BandLayout implements BandMapping {
+	
+	public static enum Scale {
+		OCTAVE_1(1), OCTAVE_3(3), OCTAVE_6(6), OCTAVE_12(12), OCTAVE_24(24), MEL(0), BARK(0), ERB(0);
+		
+		// Bands per octave, for the octave based scales
+		private int value;
+		
+		private Scale(int value) {
+			this.value = value;
+		}
+		
+		public int getValue() {
+			return value;
+		}
+	}
+	
+	private static final double MIN_FREQUENCY = 20, MAX_FREQUENCY = 20000;
+	private static final int MEL_BANDS = 40;
+	
+	private final float[] lowFrequencies, highFrequencies;
+	
+	// Compressed sparse rows, the weights of band b are at indices bandOffsets[b] until bandOffsets[b + 1]
+	private final int[] bandOffsets, bins;
+	private final float[] weights;
+	
+	private BandLayout(int fftSize, int samplingRate, float[] lowFrequencies, float[] highFrequencies) {
+		this.lowFrequencies = lowFrequencies;
+		this.highFrequencies = highFrequencies;
+		int bandCount = lowFrequencies.length;
+		int lastBin = fftSize / 2;
+		double binWidth = (double) samplingRate / fftSize;
+		
+		// Count the non-zero weights first, so that the matrix is allocated at once
+		bandOffsets = new int[bandCount + 1];
+		for (int b = 0; b < bandCount; b++) {
+			int first = firstBin(lowFrequencies[b], binWidth);
+			int last = lastBin(highFrequencies[b], binWidth, lastBin, first);
+			bandOffsets[b + 1] = bandOffsets[b] + last - first + 1;
+		}
+		bins = new int[bandOffsets[bandCount]];
+		weights = new float[bandOffsets[bandCount]];
+		
+		for (int b = 0; b < bandCount; b++) {
+			int first = firstBin(lowFrequencies[b], binWidth);
+			int last = lastBin(highFrequencies[b], binWidth, lastBin, first);
+			double total = 0;
+			for (int k = first; k <= last; k++) {
+				double overlap = Math.min(highFrequencies[b], (k + 0.5) * binWidth)
+						- Math.max(lowFrequencies[b], (k - 0.5) * binWidth);
+				bins[bandOffsets[b] + k - first] = k;
+				weights[bandOffsets[b] + k - first] = (float) Math.max(overlap, 0);
+				total += Math.max(overlap, 0);
+			}
+			
+			// Normalize, so that applying the weights yields the average magnitude
+			for (int i = bandOffsets[b]; i < bandOffsets[b + 1]; i++) {
+				weights[i] = total > 0 ? (float) (weights[i] / total) : 1f / (bandOffsets[b + 1] - bandOffsets[b]);
+			}
+		}
+	}
+	
+	private static int firstBin(double frequency, double binWidth) {
+		return Math.max(0, (int) Math.round(frequency / binWidth));
+	}
+	
+	private static int lastBin(double frequency, double binWidth, int lastBin, int firstBin) {
+		return Math.max(firstBin, Math.min(lastBin, (int) Math.round(frequency / binWidth)));
+	}
+	
+	/**
+	 * Creates a layout of the given scale between 20Hz and 20kHz, or Nyquist if lower.
+	 * @param scale Scale
+	 * @param fftSize Size of the FFT
+	 * @param samplingRate Sampling rate
+	 * @return Band layout
+	 */
+	public static BandLayout create(Scale scale, int fftSize, int samplingRate) {
+		double maxFrequency = Math.min(MAX_FREQUENCY, samplingRate / 2.0);
+		double[] edges;
+		switch (scale) {
+		case MEL:
+			edges = MelScale.edges(MIN_FREQUENCY, maxFrequency, MEL_BANDS);
+			break;
+		case BARK:
+			edges = BarkScale.edges(MIN_FREQUENCY, maxFrequency);
+			break;
+		case ERB:
+			edges = ErbScale.edges(MIN_FREQUENCY, maxFrequency);
+			break;
+		default:
+			edges = octaveEdges(scale.getValue(), MIN_FREQUENCY, maxFrequency);
+			break;
+		}
+		
+		float[] low = new float[edges.length - 1];
+		float[] high = new float[edges.length - 1];
+		for (int i = 0; i < low.length; i++) {
+			low[i] = (float) edges[i];
+			high[i] = (float) edges[i + 1];
+		}
+		return new BandLayout(fftSize, samplingRate, low, high);
+	}
+	
+	/**
+	 * Creates the layout of Minim's logarithmic averages: octaves halving down from Nyquist until the
+	 * minimum bandwidth is reached, the lowest one reaching down to 0, each split into equally wide bands.
+	 * @param fftSize Size of the FFT
+	 * @param samplingRate Sampling rate
+	 * @param minBandwidth Minimum bandwidth of an octave in Hz
+	 * @param bandsPerOctave Number of bands per octave
+	 * @return Band layout
+	 */
+	public static BandLayout logAverages(int fftSize, int samplingRate, int minBandwidth, int bandsPerOctave) {
+		float nyquist = samplingRate / 2f;
+		int octaves = 1;
+		for (float bandwidth = nyquist / 2; bandwidth > minBandwidth; bandwidth /= 2) {
+			octaves++;
+		}
+		
+		int bandCount = octaves * bandsPerOctave;
+		float[] low = new float[bandCount];
+		float[] high = new float[bandCount];
+		for (int octave = 0; octave < octaves; octave++) {
+			float lowFrequency = octave == 0 ? 0 : nyquist / (float) Math.pow(2, octaves - octave);
+			float highFrequency = nyquist / (float) Math.pow(2, octaves - octave - 1);
+			float step = (highFrequency - lowFrequency) / bandsPerOctave;
+			float frequency = lowFrequency;
+			for (int i = 0; i < bandsPerOctave; i++) {
+				low[octave * bandsPerOctave + i] = frequency;
+				high[octave * bandsPerOctave + i] = frequency + step;
+				frequency += step;
+			}
+		}
+		return new BandLayout(fftSize, samplingRate, low, high);
+	}
+	
+	/**
+	 * Band edges of fractional octaves centered on 1kHz, base 2, of all bands with the center in range
+	 */
+	private static double[] octaveEdges(int bandsPerOctave, double minFrequency, double maxFrequency) {
+		int first = (int) Math.ceil(bandsPerOctave * log2(minFrequency / 1000));
+		int last = (int) Math.floor(bandsPerOctave * log2(maxFrequency / 1000));
+		double[] edges = new double[last - first + 2];
+		for (int i = 0; i < edges.length; i++) {
+			edges[i] = 1000 * Math.pow(2, (first + i - 0.5) / bandsPerOctave);
+		}
+		return edges;
+	}
+	
+	private static double log2(double value) {
+		return Math.log(value) / Math.log(2);
+	}
+	
+	/**
+	 * Averages the bin magnitudes of each band.
+	 */
+	@Override
+	public void apply(RealFFT fft, float[] data, float[] out, int fromBand, int toBand) {
+		for (int b = fromBand; b < toBand; b++) {
+			float sum = 0;
+			for (int i = bandOffsets[b], end = bandOffsets[b + 1]; i < end; i++) {
+				sum += weights[i] * fft.magnitude(data, bins[i]);
+			}
+			out[b] = sum;
+		}
+	}
+	
+	@Override
+	public boolean isWindowRequired() {
+		return true;
+	}
+	
+	@Override
+	public int getBandCount() {
+		return lowFrequencies.length;
+	}
+	
+	@Override
+	public float getLowFrequency(int idx) {
+		return lowFrequencies[idx];
+	}
+	
+	@Override
+	public float getHighFrequency(int idx) {
+		return highFrequencies[idx];
+	}
+	
+	/**
+	 * Perceptual scales with equally spaced band edges
+	 */
+	private static class MelScale {
+		static double[] edges(double min, double max, int bands) {
+			double melMin = toMel(min), melMax = toMel(max);
+			double[] edges = new double[bands + 1];
+			for (int i = 0; i <= bands; i++) {
+				edges[i] = fromMel(melMin + (melMax - melMin) * i / bands);
+			}
+			return edges;
+		}
+		static double toMel(double f) {
+			return 2595 * Math.log10(1 + f / 700);
+		}
+		static double fromMel(double mel) {
+			return 700 * (Math.pow(10, mel / 2595) - 1);
+		}
+	}
+	
+	private static class BarkScale {
+		
+		// One band per critical band, Traunmueller's formula
+		static double[] edges(double min, double max) {
+			double barkMin = toBark(min), barkMax = toBark(max);
+			int bands = Math.max(1, (int) Math.round(barkMax - barkMin));
+			double[] edges = new double[bands + 1];
+			for (int i = 0; i <= bands; i++) {
+				edges[i] = fromBark(barkMin + (barkMax - barkMin) * i / bands);
+			}
+			return edges;
+		}
+		static double toBark(double f) {
+			return 26.81 * f / (1960 + f) - 0.53;
+		}
+		static double fromBark(double bark) {
+			return 1960 * (bark + 0.53) / (26.28 - bark);
+		}
+	}
+	
+	private static class ErbScale {
+		
+		// One band per ERB, Glasberg and Moore
+		static double[] edges(double min, double max) {
+			double erbMin = toErb(min), erbMax = toErb(max);
+			int bands = Math.max(1, (int) Math.round(erbMax - erbMin));
+			double[] edges = new double[bands + 1];
+			for (int i = 0; i <= bands; i++) {
+				edges[i] = fromErb(erbMin + (erbMax - erbMin) * i / bands);
+			}
+			return edges;
+		}
+		static double toErb(double f) {
+			return 21.4 * Math.log10(1 + 0.00437 * f);
+		}
+		static double fromErb(double erb) {
+			return (Math.pow(10, erb / 21.4) - 1) / 0.00437;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package mb.spectrum.analysis;
+
+/**
+ * Reduces the packed output of a {@link RealFFT} to the bands shown by the spectrum views.
+ */
+public interface BandMapping {
+	
+	int getBandCount();
+	
+	/**
+	 * @param idx Band index
+	 * @return Lower edge frequency of the band in Hz
+	 */
+	float getLowFrequency(int idx);
+	
+	/**
+	 * @param idx Band index
+	 * @return Upper edge frequency of the band in Hz
+	 */
+	float getHighFrequency(int idx);
+	
+	/**
+	 * @return Whether the samples have to be windowed before the FFT, <code>false</code> if the mapping 
+	 * applies a window of its own
+	 */
+	boolean isWindowRequired();
+	
+	/**
+	 * Computes the magnitudes of a range of bands, scaled as the magnitude of an FFT bin of the same size.
+	 * @param fft FFT that produced the spectrum
+	 * @param data Packed spectrum as produced by {@link RealFFT#forward(float[])}
+	 * @param out Output, the magnitude of each band
+	 * @param fromBand First band to compute
+	 * @param toBand Band to stop at, exclusive
+	 */
+	void apply(RealFFT fft, float[] data, float[] out, int fromBand, int toBand);
+}
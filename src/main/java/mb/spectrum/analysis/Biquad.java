@@ -0,0 +1,40 @@
+package mb.spectrum.analysis;
+
+/**
+ * Second order IIR filter section in transposed direct form II, keeping its state across blocks.
+ */
+class Biquad {
+	
+	private final double b0, b1, b2, a1, a2;
+	private double z1, z2;
+	
+	/**
+	 * Creates a section from coefficients normalized by a0.
+	 */
+	Biquad(double b0, double b1, double b2, double a1, double a2) {
+		this.b0 = b0;
+		this.b1 = b1;
+		this.b2 = b2;
+		this.a1 = a1;
+		this.a2 = a2;
+	}
+	
+	/**
+	 * Creates a copy with the same coefficients and a cleared state.
+	 */
+	Biquad(Biquad other) {
+		this(other.b0, other.b1, other.b2, other.a1, other.a2);
+	}
+	
+	double process(double x) {
+		double y = b0 * x + z1;
+		z1 = b1 * x - a1 * y + z2;
+		z2 = b2 * x - a2 * y;
+		return y;
+	}
+	
+	void clear() {
+		z1 = 0;
+		z2 = 0;
+	}
+}
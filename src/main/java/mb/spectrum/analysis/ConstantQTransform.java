@@ -0,0 +1,164 @@
+package mb.spectrum.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Constant-Q transform computed from the FFT with sparse spectral kernels (Brown and Puckette).
+ * <p>
+ * Bins are spaced geometrically from the minimum frequency, each being as wide as a fraction of an octave. The
+ * windowed complex sinusoid of each bin, as long as its quality factor requires, is transformed once into the
+ * frequency domain, where it is concentrated around the bin frequency. Dropping the negligible values leaves a
+ * few FFT bins per constant-Q bin, so the transform costs one FFT and a short sum per bin. Kernels longer than the
+ * FFT are truncated, lowering the resolution of the lowest bins.
+ */
+public class ConstantQTransform implements BandMapping {
+	
+	// Kernel values below this fraction of the kernel peak are dropped
+	private static final double SPARSITY_THRESHOLD = 0.0054;
+	private static final double MAX_FREQUENCY = 20000;
+	
+	private final float[] lowFrequencies, highFrequencies;
+	
+	// Compressed sparse rows of the conjugated kernels, as in BandLayout
+	private final int[] kernelOffsets, bins;
+	private final float[] kernelRe, kernelIm;
+	
+	/**
+	 * @param fftSize Size of the FFT
+	 * @param samplingRate Sampling rate
+	 * @param minFrequency Center frequency of the first bin
+	 * @param binsPerOctave Number of bins per octave
+	 */
+	public ConstantQTransform(int fftSize, int samplingRate, double minFrequency, int binsPerOctave) {
+		double halfBin = Math.pow(2, 1.0 / (2 * binsPerOctave));
+		double maxFrequency = Math.min(MAX_FREQUENCY, samplingRate / 2.0 / halfBin);
+		int binCount = Math.max(1, (int) Math.floor(binsPerOctave * Math.log(maxFrequency / minFrequency) / Math.log(2)) + 1);
+		double q = 1 / (Math.pow(2, 1.0 / binsPerOctave) - 1);
+		
+		lowFrequencies = new float[binCount];
+		highFrequencies = new float[binCount];
+		kernelOffsets = new int[binCount + 1];
+		int[][] kernelBins = new int[binCount][];
+		float[][] kernelValues = new float[binCount][];
+		
+		RealFFT fft = RealFFT.forSize(fftSize);
+		float[] re = new float[fftSize];
+		float[] im = new float[fftSize];
+		for (int k = 0; k < binCount; k++) {
+			double frequency = minFrequency * Math.pow(2, (double) k / binsPerOctave);
+			lowFrequencies[k] = (float) (frequency / halfBin);
+			highFrequencies[k] = (float) (frequency * halfBin);
+			
+			// Windowed complex sinusoid, centered in the frame and normalized by the sum of the window
+			int length = (int) Math.min(fftSize, Math.ceil(q * samplingRate / frequency));
+			int start = (fftSize - length) / 2;
+			Arrays.fill(re, 0);
+			Arrays.fill(im, 0);
+			double windowSum = 0;
+			for (int n = 0; n < length; n++) {
+				windowSum += WindowFunction.BLACKMAN.value(n, length, 0);
+			}
+			for (int n = 0; n < length; n++) {
+				double w = WindowFunction.BLACKMAN.value(n, length, 0) / windowSum;
+				double phase = 2 * Math.PI * frequency * n / samplingRate;
+				re[start + n] = (float) (w * Math.cos(phase));
+				im[start + n] = (float) (w * Math.sin(phase));
+			}
+			fft.forward(re);
+			fft.forward(im);
+			
+			// Combine both real transforms into the complex one, remembering the peak
+			float[] values = new float[2 * (fftSize / 2 + 1)];
+			double peak = 0;
+			for (int j = 0; j <= fftSize / 2; j++) {
+				float rr = real(re, j, fftSize), ri = imag(re, j, fftSize);
+				float ir = real(im, j, fftSize), ii = imag(im, j, fftSize);
+				values[2 * j] = rr - ii;
+				values[2 * j + 1] = ri + ir;
+				peak = Math.max(peak, Math.hypot(values[2 * j], values[2 * j + 1]));
+			}
+			
+			// Keep the significant values only, conjugated
+			int count = 0;
+			int[] kept = new int[fftSize / 2 + 1];
+			for (int j = 0; j <= fftSize / 2; j++) {
+				if(Math.hypot(values[2 * j], values[2 * j + 1]) >= peak * SPARSITY_THRESHOLD) {
+					kept[count++] = j;
+				}
+			}
+			kernelBins[k] = Arrays.copyOf(kept, count);
+			kernelValues[k] = new float[2 * count];
+			for (int i = 0; i < count; i++) {
+				kernelValues[k][2 * i] = values[2 * kept[i]];
+				kernelValues[k][2 * i + 1] = -values[2 * kept[i] + 1];
+			}
+			kernelOffsets[k + 1] = kernelOffsets[k] + count;
+		}
+		
+		bins = new int[kernelOffsets[binCount]];
+		kernelRe = new float[kernelOffsets[binCount]];
+		kernelIm = new float[kernelOffsets[binCount]];
+		for (int k = 0; k < binCount; k++) {
+			for (int i = 0; i < kernelBins[k].length; i++) {
+				bins[kernelOffsets[k] + i] = kernelBins[k][i];
+				kernelRe[kernelOffsets[k] + i] = kernelValues[k][2 * i];
+				kernelIm[kernelOffsets[k] + i] = kernelValues[k][2 * i + 1];
+			}
+		}
+	}
+	
+	private static float real(float[] data, int bin, int size) {
+		return bin == 0 ? data[0] : bin == size / 2 ? data[1] : data[2 * bin];
+	}
+	
+	private static float imag(float[] data, int bin, int size) {
+		return bin == 0 || bin == size / 2 ? 0 : data[2 * bin + 1];
+	}
+	
+	/**
+	 * Correlates the spectrum with each kernel. As the kernels are normalized by the sum of their window, a sinusoid
+	 * reads the same as with an unwindowed FFT of full length, once scaled by the FFT size.
+	 */
+	@Override
+	public void apply(RealFFT fft, float[] data, float[] out, int fromBand, int toBand) {
+		int size = fft.size();
+		for (int k = fromBand; k < toBand; k++) {
+			float sumRe = 0, sumIm = 0;
+			for (int i = kernelOffsets[k], end = kernelOffsets[k + 1]; i < end; i++) {
+				int bin = bins[i];
+				float re = real(data, bin, size);
+				float im = imag(data, bin, size);
+				sumRe += re * kernelRe[i] - im * kernelIm[i];
+				sumIm += re * kernelIm[i] + im * kernelRe[i];
+			}
+			out[k] = (float) Math.sqrt(sumRe * sumRe + sumIm * sumIm);
+		}
+	}
+	
+	@Override
+	public boolean isWindowRequired() {
+		return false;
+	}
+	
+	@Override
+	public int getBandCount() {
+		return lowFrequencies.length;
+	}
+	
+	@Override
+	public float getLowFrequency(int idx) {
+		return lowFrequencies[idx];
+	}
+	
+	@Override
+	public float getHighFrequency(int idx) {
+		return highFrequencies[idx];
+	}
+	
+	/**
+	 * @return Total number of kernel values, i.e. complex multiplications per transform
+	 */
+	public int getKernelSize() {
+		return bins.length;
+	}
+}
@@ -0,0 +1,88 @@
+package mb.spectrum.analysis;
+
+/**
+ * Conversion of linear magnitudes to dB, fast enough for converting every band of every spectrum.
+ * <p>
+ * The fast path splits the float into its exponent, which is the integer part of the base 2 logarithm, and its
+ * mantissa, whose logarithm is linearly interpolated from a table of 256 intervals. The error stays below 0.0001dB
+ * for all normal positive values. Zero, negative, subnormal, infinite and NaN values are handed to the exact
+ * conversion, so the results agree with {@link Math#log10(double)} on the special cases.
+ */
+public final class Decibels {
+	
+	private static final int TABLE_BITS = 8;
+	private static final int FRACTION_BITS = 23 - TABLE_BITS;
+	private static final float FRACTION_SCALE = 1f / (1 << FRACTION_BITS);
+	private static final float DB_PER_OCTAVE = (float) (20 * Math.log10(2));
+	
+	// Base 2 logarithm of the mantissa at the start of each interval, with its increment over the interval
+	private static final float[] LOG2_TABLE = new float[1 << TABLE_BITS];
+	private static final float[] LOG2_SLOPES = new float[1 << TABLE_BITS];
+	
+	static {
+		for (int i = 0; i < LOG2_TABLE.length; i++) {
+			double start = log2(1 + (double) i / LOG2_TABLE.length);
+			double end = log2(1 + (double) (i + 1) / LOG2_TABLE.length);
+			LOG2_TABLE[i] = (float) start;
+			LOG2_SLOPES[i] = (float) (end - start);
+		}
+	}
+	
+	private Decibels() {
+	}
+	
+	private static double log2(double value) {
+		return Math.log(value) / Math.log(2);
+	}
+	
+	/**
+	 * Converts a linear magnitude to dB using the table.
+	 * @param value Magnitude
+	 * @return Magnitude in dB, negative infinity for 0
+	 */
+	public static float toDB(float value) {
+		int bits = Float.floatToRawIntBits(value);
+		int exponent = bits >> 23;
+		
+		// Sign bit set, zero or subnormal, infinity or NaN
+		if(exponent <= 0 || exponent == 0xff) {
+			return (float) toDBExact(value);
+		}
+		int index = (bits >> FRACTION_BITS) & (LOG2_TABLE.length - 1);
+		float fraction = (bits & ((1 << FRACTION_BITS) - 1)) * FRACTION_SCALE;
+		return ((exponent - 127) + LOG2_TABLE[index] + LOG2_SLOPES[index] * fraction) * DB_PER_OCTAVE;
+	}
+	
+	/**
+	 * Converts an array of linear magnitudes to dB using the table.
+	 * @param values Magnitudes
+	 * @param valuesDB Receives the magnitudes in dB, may be the same array
+	 * @param length Number of values to convert
+	 */
+	public static void toDB(float[] values, float[] valuesDB, int length) {
+		for (int i = 0; i < length; i++) {
+			valuesDB[i] = toDB(values[i]);
+		}
+	}
+	
+	/**
+	 * Converts a linear magnitude to dB with {@link Math#log10(double)}.
+	 * @param value Magnitude
+	 * @return Magnitude in dB, negative infinity for 0
+	 */
+	public static double toDBExact(double value) {
+		return 20 * Math.log10(value);
+	}
+	
+	/**
+	 * Converts an array of linear magnitudes to dB with {@link Math#log10(double)}.
+	 * @param values Magnitudes
+	 * @param valuesDB Receives the magnitudes in dB, may be the same array
+	 * @param length Number of values to convert
+	 */
+	public static void toDBExact(float[] values, float[] valuesDB, int length) {
+		for (int i = 0; i < length; i++) {
+			valuesDB[i] = (float) toDBExact(values[i]);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package mb.spectrum.analysis;
+
+/**
+ * Metering kernel computing the levels of both channels and their mono mix in a single pass over a block.
+ * <p>
+ * Mixing down, peak, sum of squares, DC and clip count are computed together, so each sample is loaded once.
+ * The loop is unrolled by two with independent accumulators, which breaks the dependency chains of the sums
+ * and maxima and leaves the JIT free to pipeline or vectorize them.
+ */
+final class LevelMeter {
+	
+	/**
+	 * Samples at or above this magnitude, full scale of 16 bit audio, are counted as clipped
+	 */
+	static final float CLIP_LEVEL = 32767f / 32768f;
+	
+	private LevelMeter() {
+	}
+	
+	/**
+	 * Mixes the channels down to mono and computes the levels of all three.
+	 * @param left Left channel
+	 * @param right Right channel
+	 * @param mono Receives the mono mix
+	 * @param leftLevels Receives the levels of the left channel
+	 * @param rightLevels Receives the levels of the right channel
+	 * @param monoLevels Receives the levels of the mono mix
+	 */
+	static void measure(float[] left, float[] right, float[] mono,
+			Levels leftLevels, Levels rightLevels, Levels monoLevels) {
+		int length = mono.length;
+		float peakL0 = 0, peakL1 = 0, peakR0 = 0, peakR1 = 0, peakM0 = 0, peakM1 = 0;
+		float sqL0 = 0, sqL1 = 0, sqR0 = 0, sqR1 = 0, sqM0 = 0, sqM1 = 0;
+		float sumL0 = 0, sumL1 = 0, sumR0 = 0, sumR1 = 0;
+		int clipsL = 0, clipsR = 0, clipsM = 0;
+		
+		int i = 0;
+		for (; i < length - 1; i += 2) {
+			float l0 = left[i], l1 = left[i + 1];
+			float r0 = right[i], r1 = right[i + 1];
+			float m0 = (l0 + r0) * 0.5f, m1 = (l1 + r1) * 0.5f;
+			mono[i] = m0;
+			mono[i + 1] = m1;
+			
+			float al0 = Math.abs(l0), al1 = Math.abs(l1);
+			float ar0 = Math.abs(r0), ar1 = Math.abs(r1);
+			float am0 = Math.abs(m0), am1 = Math.abs(m1);
+			peakL0 = al0 > peakL0 ? al0 : peakL0;
+			peakL1 = al1 > peakL1 ? al1 : peakL1;
+			peakR0 = ar0 > peakR0 ? ar0 : peakR0;
+			peakR1 = ar1 > peakR1 ? ar1 : peakR1;
+			peakM0 = am0 > peakM0 ? am0 : peakM0;
+			peakM1 = am1 > peakM1 ? am1 : peakM1;
+			
+			sqL0 += l0 * l0;
+			sqL1 += l1 * l1;
+			sqR0 += r0 * r0;
+			sqR1 += r1 * r1;
+			sqM0 += m0 * m0;
+			sqM1 += m1 * m1;
+			
+			sumL0 += l0;
+			sumL1 += l1;
+			sumR0 += r0;
+			sumR1 += r1;
+			
+			clipsL += (al0 >= CLIP_LEVEL ? 1 : 0) + (al1 >= CLIP_LEVEL ? 1 : 0);
+			clipsR += (ar0 >= CLIP_LEVEL ? 1 : 0) + (ar1 >= CLIP_LEVEL ? 1 : 0);
+			clipsM += (am0 >= CLIP_LEVEL ? 1 : 0) + (am1 >= CLIP_LEVEL ? 1 : 0);
+		}
+		
+		// Odd sample left over
+		for (; i < length; i++) {
+			float l = left[i], r = right[i], m = (l + r) * 0.5f;
+			mono[i] = m;
+			peakL0 = Math.max(peakL0, Math.abs(l));
+			peakR0 = Math.max(peakR0, Math.abs(r));
+			peakM0 = Math.max(peakM0, Math.abs(m));
+			sqL0 += l * l;
+			sqR0 += r * r;
+			sqM0 += m * m;
+			sumL0 += l;
+			sumR0 += r;
+			clipsL += Math.abs(l) >= CLIP_LEVEL ? 1 : 0;
+			clipsR += Math.abs(r) >= CLIP_LEVEL ? 1 : 0;
+			clipsM += Math.abs(m) >= CLIP_LEVEL ? 1 : 0;
+		}
+		
+		// The DC of the mix follows from the channels
+		float sumL = sumL0 + sumL1, sumR = sumR0 + sumR1;
+		leftLevels.set(length, Math.max(peakL0, peakL1), sqL0 + sqL1, sumL, clipsL);
+		rightLevels.set(length, Math.max(peakR0, peakR1), sqR0 + sqR1, sumR, clipsR);
+		monoLevels.set(length, Math.max(peakM0, peakM1), sqM0 + sqM1, (sumL + sumR) * 0.5f, clipsM);
+	}
+}
@@ -0,0 +1,54 @@
+package mb.spectrum.analysis;
+
+/**
+ * Linear levels of a single channel within one audio block.
+ */
+public class Levels {
+	
+	float peak, rms, sumOfSquares, dc;
+	int clipCount;
+	
+	void set(int length, float peak, float sumOfSquares, float sum, int clipCount) {
+		this.peak = peak;
+		this.sumOfSquares = sumOfSquares;
+		this.clipCount = clipCount;
+		rms = length > 0 ? (float) Math.sqrt(sumOfSquares / length) : 0;
+		dc = length > 0 ? sum / length : 0;
+	}
+	
+	public float getPeak() {
+		return peak;
+	}
+	
+	public float getRms() {
+		return rms;
+	}
+	
+	/**
+	 * @return Sum of the squared samples, for accumulating energy over several blocks
+	 */
+	public float getSumOfSquares() {
+		return sumOfSquares;
+	}
+	
+	/**
+	 * @return Mean value of the samples
+	 */
+	public float getDc() {
+		return dc;
+	}
+	
+	/**
+	 * @return Number of samples at full scale
+	 */
+	public int getClipCount() {
+		return clipCount;
+	}
+	
+	/**
+	 * @return Ratio of peak to RMS level, 0 for silence
+	 */
+	public float getCrestFactor() {
+		return rms > 0 ? peak / rms : 0;
+	}
+}
@@ -0,0 +1,326 @@
+package mb.spectrum.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Loudness of the stereo signal as specified by ITU-R BS.1770-4 and EBU Tech 3342.
+ * <p>
+ * Each channel is K-weighted by a high shelf and a high pass biquad, and the mean square of the filtered samples is
+ * accumulated into sub-blocks of 100ms. The momentary (400ms) and short-term (3s) windows are running sums over the
+ * last 4 and 30 sub-blocks, so both slide by 100ms, i.e. with 75% overlap for the momentary gating blocks, at a cost
+ * independent of the window length.
+ * <p>
+ * Gating blocks and short-term values above the absolute gate are counted into histograms of 0.1 LU bins, together
+ * with their summed power. The integrated loudness and the loudness range are computed from these histograms with
+ * their relative gates, so memory stays constant however long the measurement runs.
+ */
+public class LoudnessFeature implements AnalysisFeature<LoudnessFeature.Result> {
+	
+	/**
+	 * Loudness values as of the last completed sub-block.
+	 */
+	public static class Result {
+		
+		private double momentary, shortTerm, integrated, range;
+		private final double[] channelMomentary = new double[2];
+		
+		/**
+		 * @return Momentary loudness in LUFS
+		 */
+		public double getMomentary() {
+			return momentary;
+		}
+		
+		/**
+		 * @return Short-term loudness in LUFS
+		 */
+		public double getShortTerm() {
+			return shortTerm;
+		}
+		
+		/**
+		 * @return Integrated loudness in LUFS since the start or the last reset
+		 */
+		public double getIntegrated() {
+			return integrated;
+		}
+		
+		/**
+		 * @return Loudness range in LU since the start or the last reset
+		 */
+		public double getRange() {
+			return range;
+		}
+		
+		/**
+		 * @param channel 0 for left, 1 for right
+		 * @return Momentary loudness of a single channel in LUFS
+		 */
+		public double getChannelMomentary(int channel) {
+			return channelMomentary[channel];
+		}
+	}
+	
+	/**
+	 * Lowest reported loudness, which is also the absolute gate
+	 */
+	public static final double MIN_LOUDNESS = -70;
+	
+	private static final double MAX_LOUDNESS = 5;
+	private static final double BIN_WIDTH = 0.1;
+	private static final int MOMENTARY_SUB_BLOCKS = 4, SHORT_TERM_SUB_BLOCKS = 30;
+	private static final double INTEGRATED_RELATIVE_GATE = -10, RANGE_RELATIVE_GATE = -20;
+	private static final double RANGE_LOW_PERCENTILE = 0.1, RANGE_HIGH_PERCENTILE = 0.95;
+	
+	private final int samplingRate, subBlockSize;
+	private final Biquad[] shelf, highPass;
+	
+	// Mean square of the last sub-blocks per channel, with running sums over both windows
+	private final double[][] subBlocks;
+	private final double[] momentarySums, shortTermSums;
+	private int subBlockPos, subBlockCount;
+	
+	// Sub-block being accumulated
+	private final double[] squares;
+	private int samples;
+	
+	// Histograms of the gating blocks and short-term values
+	private final int[] blockCounts, shortTermCounts;
+	private final double[] blockPowers, shortTermPowers;
+	
+	private double momentary, shortTerm, integrated, range;
+	private final double[] channelMomentary;
+	private volatile boolean resetRequested;
+	
+	/**
+	 * @param samplingRate Sampling rate
+	 */
+	public LoudnessFeature(int samplingRate) {
+		this.samplingRate = samplingRate;
+		subBlockSize = Math.round(samplingRate / 10f);
+		shelf = new Biquad[] { createShelf(samplingRate), createShelf(samplingRate) };
+		highPass = new Biquad[] { createHighPass(samplingRate), createHighPass(samplingRate) };
+		subBlocks = new double[2][SHORT_TERM_SUB_BLOCKS];
+		momentarySums = new double[2];
+		shortTermSums = new double[2];
+		squares = new double[2];
+		int bins = (int) Math.round((MAX_LOUDNESS - MIN_LOUDNESS) / BIN_WIDTH);
+		blockCounts = new int[bins];
+		blockPowers = new double[bins];
+		shortTermCounts = new int[bins];
+		shortTermPowers = new double[bins];
+		channelMomentary = new double[2];
+		clear();
+	}
+	
+	/**
+	 * Pre-filter modelling the acoustic effect of the head, a high shelf of about +4dB above 1.5kHz.
+	 * The coefficients are derived from the analog prototype for any sampling rate, matching the
+	 * tabulated ones at 48kHz.
+	 */
+	private static Biquad createShelf(int samplingRate) {
+		double f0 = 1681.974450955533, gain = 3.999843853973347, q = 0.7071752369554196;
+		double k = Math.tan(Math.PI * f0 / samplingRate);
+		double vh = Math.pow(10, gain / 20);
+		double vb = Math.pow(vh, 0.4996667741545416);
+		double a0 = 1 + k / q + k * k;
+		return new Biquad(
+				(vh + vb * k / q + k * k) / a0,
+				2 * (k * k - vh) / a0,
+				(vh - vb * k / q + k * k) / a0,
+				2 * (k * k - 1) / a0,
+				(1 - k / q + k * k) / a0);
+	}
+	
+	/**
+	 * RLB weighting, a high pass at about 38Hz.
+	 */
+	private static Biquad createHighPass(int samplingRate) {
+		double f0 = 38.13547087602444, q = 0.5003270373238773;
+		double k = Math.tan(Math.PI * f0 / samplingRate);
+		double a0 = 1 + k / q + k * k;
+		return new Biquad(1, -2, 1, 2 * (k * k - 1) / a0, (1 - k / q + k * k) / a0);
+	}
+	
+	@Override
+	public Result createResult() {
+		return new Result();
+	}
+	
+	@Override
+	public void process(AnalysisFrame frame, Result result) {
+		if(resetRequested) {
+			resetRequested = false;
+			clear();
+		}
+		
+		float[] left = frame.getLeft(), right = frame.getRight();
+		Biquad shelfL = shelf[0], shelfR = shelf[1], highPassL = highPass[0], highPassR = highPass[1];
+		for (int i = 0; i < left.length; i++) {
+			double l = highPassL.process(shelfL.process(left[i]));
+			double r = highPassR.process(shelfR.process(right[i]));
+			squares[0] += l * l;
+			squares[1] += r * r;
+			if(++samples == subBlockSize) {
+				completeSubBlock();
+			}
+		}
+		
+		// Every holder gets the current values, as frames may be used alternately
+		result.momentary = momentary;
+		result.shortTerm = shortTerm;
+		result.integrated = integrated;
+		result.range = range;
+		result.channelMomentary[0] = channelMomentary[0];
+		result.channelMomentary[1] = channelMomentary[1];
+	}
+	
+	private void completeSubBlock() {
+		
+		// Slide both windows by one sub-block
+		int momentaryOut = (subBlockPos - MOMENTARY_SUB_BLOCKS + SHORT_TERM_SUB_BLOCKS) % SHORT_TERM_SUB_BLOCKS;
+		for (int c = 0; c < 2; c++) {
+			double power = squares[c] / samples;
+			momentarySums[c] += power - (subBlockCount >= MOMENTARY_SUB_BLOCKS ? subBlocks[c][momentaryOut] : 0);
+			shortTermSums[c] += power - subBlocks[c][subBlockPos];
+			subBlocks[c][subBlockPos] = power;
+			squares[c] = 0;
+		}
+		samples = 0;
+		subBlockPos = (subBlockPos + 1) % SHORT_TERM_SUB_BLOCKS;
+		subBlockCount++;
+		
+		if(subBlockCount >= MOMENTARY_SUB_BLOCKS) {
+			
+			// Channels are summed with unit weights, as the front left and right ones
+			double power = Math.max(0, momentarySums[0] + momentarySums[1]) / MOMENTARY_SUB_BLOCKS;
+			momentary = loudness(power);
+			channelMomentary[0] = loudness(Math.max(0, momentarySums[0]) / MOMENTARY_SUB_BLOCKS);
+			channelMomentary[1] = loudness(Math.max(0, momentarySums[1]) / MOMENTARY_SUB_BLOCKS);
+			add(blockCounts, blockPowers, momentary, power);
+			integrated = gatedLoudness(blockCounts, blockPowers, INTEGRATED_RELATIVE_GATE);
+		}
+		
+		if(subBlockCount >= SHORT_TERM_SUB_BLOCKS) {
+			double power = Math.max(0, shortTermSums[0] + shortTermSums[1]) / SHORT_TERM_SUB_BLOCKS;
+			shortTerm = loudness(power);
+			add(shortTermCounts, shortTermPowers, shortTerm, power);
+			range = loudnessRange();
+		}
+	}
+	
+	private static double loudness(double power) {
+		return power > 0 ? Math.max(MIN_LOUDNESS, -0.691 + 10 * Math.log10(power)) : MIN_LOUDNESS;
+	}
+	
+	/**
+	 * Counts a value passing the absolute gate into a histogram
+	 */
+	private static void add(int[] counts, double[] powers, double loudness, double power) {
+		if(loudness > MIN_LOUDNESS) {
+			int bin = Math.min(counts.length - 1, (int) ((loudness - MIN_LOUDNESS) / BIN_WIDTH));
+			counts[bin]++;
+			powers[bin] += power;
+		}
+	}
+	
+	/**
+	 * @return Index of the first bin above the relative gate, or -1 if the histogram is empty
+	 */
+	private static int relativeGateBin(int[] counts, double[] powers, double relativeGate) {
+		long count = 0;
+		double power = 0;
+		for (int i = 0; i < counts.length; i++) {
+			count += counts[i];
+			power += powers[i];
+		}
+		if(count == 0) {
+			return -1;
+		}
+		double gate = loudness(power / count) + relativeGate;
+		return Math.max(0, (int) Math.ceil((gate - MIN_LOUDNESS) / BIN_WIDTH - 0.5));
+	}
+	
+	/**
+	 * @return Loudness of the mean power of all values above the relative gate
+	 */
+	private static double gatedLoudness(int[] counts, double[] powers, double relativeGate) {
+		int from = relativeGateBin(counts, powers, relativeGate);
+		if(from < 0) {
+			return MIN_LOUDNESS;
+		}
+		long count = 0;
+		double power = 0;
+		for (int i = from; i < counts.length; i++) {
+			count += counts[i];
+			power += powers[i];
+		}
+		return count > 0 ? loudness(power / count) : MIN_LOUDNESS;
+	}
+	
+	/**
+	 * @return Difference between the high and low percentiles of the short-term values above the relative gate
+	 */
+	private double loudnessRange() {
+		int from = relativeGateBin(shortTermCounts, shortTermPowers, RANGE_RELATIVE_GATE);
+		if(from < 0) {
+			return 0;
+		}
+		long count = 0;
+		for (int i = from; i < shortTermCounts.length; i++) {
+			count += shortTermCounts[i];
+		}
+		
+		// Percentiles are taken at the bin centers
+		double low = 0, high = 0;
+		long lowRank = (long) Math.ceil(RANGE_LOW_PERCENTILE * count);
+		long highRank = (long) Math.ceil(RANGE_HIGH_PERCENTILE * count);
+		long seen = 0;
+		for (int i = from; i < shortTermCounts.length && seen < highRank; i++) {
+			long next = seen + shortTermCounts[i];
+			double center = MIN_LOUDNESS + (i + 0.5) * BIN_WIDTH;
+			if(seen < lowRank && next >= lowRank) {
+				low = center;
+			}
+			if(next >= highRank) {
+				high = center;
+			}
+			seen = next;
+		}
+		return high - low;
+	}
+	
+	private void clear() {
+		for (int c = 0; c < 2; c++) {
+			shelf[c].clear();
+			highPass[c].clear();
+			Arrays.fill(subBlocks[c], 0);
+		}
+		Arrays.fill(momentarySums, 0);
+		Arrays.fill(shortTermSums, 0);
+		Arrays.fill(squares, 0);
+		Arrays.fill(blockCounts, 0);
+		Arrays.fill(blockPowers, 0);
+		Arrays.fill(shortTermCounts, 0);
+		Arrays.fill(shortTermPowers, 0);
+		Arrays.fill(channelMomentary, MIN_LOUDNESS);
+		subBlockPos = 0;
+		subBlockCount = 0;
+		samples = 0;
+		momentary = MIN_LOUDNESS;
+		shortTerm = MIN_LOUDNESS;
+		integrated = MIN_LOUDNESS;
+		range = 0;
+	}
+	
+	/**
+	 * Restarts the integrated loudness and loudness range measurement. Takes effect with the next block.
+	 */
+	public void reset() {
+		resetRequested = true;
+	}
+	
+	public int getSamplingRate() {
+		return samplingRate;
+	}
+}
@@ -0,0 +1,211 @@
+package mb.spectrum.analysis;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-place FFT of real input.
+ * <p>
+ * A real signal of N samples is transformed as N/2 complex samples by a radix-4 decimation in time FFT (with a single
+ * radix-2 stage when needed), followed by a split pass separating the spectrum of the even and odd samples. Twiddle
+ * and bit reversal tables are computed once per size and shared, as plans are immutable and thus thread-safe.
+ * Transforming allocates nothing.
+ * <p>
+ * The output is packed into the input array: <code>data[0]</code> holds the DC bin, <code>data[1]</code> the
+ * Nyquist bin, and <code>data[2k]</code>, <code>data[2k + 1]</code> the real and imaginary part of bin k.
+ * As with Minim, the transform is not normalized.
+ */
+public class RealFFT {
+	
+	private static final Map<Integer, RealFFT> PLANS = new HashMap<>();
+	
+	private final int size, half;
+	private final int[] bitReverse;
+	
+	// Twiddles of the complex FFT of half the size, and of the split pass
+	private final float[] cos, sin, splitCos, splitSin;
+	
+	/**
+	 * Returns the shared plan for the given size, creating it on first use.
+	 * @param size Number of real samples, must be a power of two of at least 4
+	 * @return FFT plan
+	 */
+	public static RealFFT forSize(int size) {
+		synchronized (PLANS) {
+			RealFFT fft = PLANS.get(size);
+			if(fft == null) {
+				fft = new RealFFT(size);
+				PLANS.put(size, fft);
+			}
+			return fft;
+		}
+	}
+	
+	private RealFFT(int size) {
+		if(size < 4 || Integer.bitCount(size) != 1) {
+			throw new IllegalArgumentException("Size must be a power of two of at least 4: " + size);
+		}
+		this.size = size;
+		half = size / 2;
+		
+		int bits = Integer.numberOfTrailingZeros(half);
+		bitReverse = new int[half];
+		for (int i = 0; i < half; i++) {
+			bitReverse[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+		}
+		
+		cos = new float[half];
+		sin = new float[half];
+		for (int i = 0; i < half; i++) {
+			cos[i] = (float) Math.cos(2 * Math.PI * i / half);
+			sin[i] = (float) Math.sin(2 * Math.PI * i / half);
+		}
+		
+		splitCos = new float[half / 2 + 1];
+		splitSin = new float[half / 2 + 1];
+		for (int i = 0; i < splitCos.length; i++) {
+			splitCos[i] = (float) Math.cos(2 * Math.PI * i / size);
+			splitSin[i] = (float) Math.sin(2 * Math.PI * i / size);
+		}
+	}
+	
+	/**
+	 * Transforms the real samples into the packed spectrum, in place.
+	 * @param data Samples, of the size of the plan
+	 */
+	public void forward(float[] data) {
+		if(data.length != size) {
+			throw new IllegalArgumentException("Expected " + size + " samples, got " + data.length);
+		}
+		transform(data);
+		split(data);
+	}
+	
+	/**
+	 * @param data Packed spectrum as produced by {@link #forward(float[])}
+	 * @param bin Bin index between 0 and N/2
+	 * @return Magnitude of the bin
+	 */
+	public float magnitude(float[] data, int bin) {
+		if(bin == 0) {
+			return Math.abs(data[0]);
+		} else if(bin == half) {
+			return Math.abs(data[1]);
+		}
+		float re = data[2 * bin];
+		float im = data[2 * bin + 1];
+		return (float) Math.sqrt(re * re + im * im);
+	}
+	
+	/**
+	 * Complex FFT of the interleaved data of half the size
+	 */
+	private void transform(float[] data) {
+		int n = half;
+		
+		// Bit reversal permutation
+		for (int i = 0; i < n; i++) {
+			int j = bitReverse[i];
+			if(i < j) {
+				int a = 2 * i, b = 2 * j;
+				float re = data[a], im = data[a + 1];
+				data[a] = data[b];
+				data[a + 1] = data[b + 1];
+				data[b] = re;
+				data[b + 1] = im;
+			}
+		}
+		
+		// Single radix-2 stage if the number of stages is odd
+		int length = 4;
+		if(Integer.numberOfTrailingZeros(n) % 2 == 1) {
+			for (int i = 0; i < 2 * n; i += 4) {
+				float re = data[i + 2], im = data[i + 3];
+				data[i + 2] = data[i] - re;
+				data[i + 3] = data[i + 1] - im;
+				data[i] += re;
+				data[i + 1] += im;
+			}
+			length = 8;
+		}
+		
+		// Radix-4 stages, each combining four quarters of a block holding the DFTs of the samples
+		// with index 0, 2, 1 and 3 modulo 4 respectively
+		for (; length <= n; length *= 4) {
+			int quarter = length / 4;
+			int stride = n / length;
+			for (int start = 0; start < n; start += length) {
+				for (int k = 0; k < quarter; k++) {
+					int i0 = 2 * (start + k);
+					int i1 = i0 + 2 * quarter;
+					int i2 = i1 + 2 * quarter;
+					int i3 = i2 + 2 * quarter;
+					int t1 = k * stride, t2 = 2 * t1, t3 = 3 * t1;
+					
+					float ar = data[i0], ai = data[i0 + 1];
+					
+					// Multiply by the conjugate of the stored twiddles, i.e. by exp(-2 pi i t / n)
+					float xr = data[i1], xi = data[i1 + 1];
+					float br = xr * cos[t2] + xi * sin[t2];
+					float bi = xi * cos[t2] - xr * sin[t2];
+					xr = data[i2];
+					xi = data[i2 + 1];
+					float cr = xr * cos[t1] + xi * sin[t1];
+					float ci = xi * cos[t1] - xr * sin[t1];
+					xr = data[i3];
+					xi = data[i3 + 1];
+					float dr = xr * cos[t3] + xi * sin[t3];
+					float di = xi * cos[t3] - xr * sin[t3];
+					
+					float sumABr = ar + br, sumABi = ai + bi;
+					float difABr = ar - br, difABi = ai - bi;
+					float sumCDr = cr + dr, sumCDi = ci + di;
+					float difCDr = cr - dr, difCDi = ci - di;
+					
+					data[i0] = sumABr + sumCDr;
+					data[i0 + 1] = sumABi + sumCDi;
+					data[i1] = difABr + difCDi;
+					data[i1 + 1] = difABi - difCDr;
+					data[i2] = sumABr - sumCDr;
+					data[i2 + 1] = sumABi - sumCDi;
+					data[i3] = difABr - difCDi;
+					data[i3 + 1] = difABi + difCDr;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Separates the spectrum of the real samples from the complex FFT of the even and odd samples
+	 */
+	private void split(float[] data) {
+		int n = half;
+		
+		float dc = data[0], nyquist = data[1];
+		data[0] = dc + nyquist;
+		data[1] = dc - nyquist;
+		
+		for (int k = 1; k <= n / 2; k++) {
+			int a = 2 * k, b = 2 * (n - k);
+			float r1 = data[a], i1 = data[a + 1];
+			float r2 = data[b], i2 = data[b + 1];
+			
+			// Spectra of the even and odd samples
+			float er = (r1 + r2) / 2, ei = (i1 - i2) / 2;
+			float or = (i1 + i2) / 2, oi = (r2 - r1) / 2;
+			
+			// Odd spectrum shifted by exp(-2 pi i k / N)
+			float tr = or * splitCos[k] + oi * splitSin[k];
+			float ti = oi * splitCos[k] - or * splitSin[k];
+			
+			data[a] = er + tr;
+			data[a + 1] = ei + ti;
+			data[b] = er - tr;
+			data[b + 1] = ti - ei;
+		}
+	}
+	
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,268 @@
+package mb.spectrum.analysis;
+
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+
+/**
+ * Logarithmically averaged spectrum of the mono mix.
+ * <p>
+ * This is a sliding window STFT: every incoming sample is added to a circular history of the last window and 
+ * a new spectrum is computed each time a hop worth of samples has arrived. The window length sets the frequency 
+ * resolution, while the hop sets the update rate.
+ * <p>
+ * The bins are reduced to bands by a {@link BandMapping}, either a {@link BandLayout} averaging the bins between 
+ * the edge frequencies of each band, or a {@link ConstantQTransform}.
+ * <p>
+ * The window is taken from the shared {@link Window} tables and applied while copying the samples into the FFT 
+ * input. Bands are corrected for the gain of the window, so that readings don't depend on the window function. 
+ * The same correction applies to all bands, chosen by the {@link Calibration}.
+ * <p>
+ * Optionally the spectrum is computed at multiple resolutions: the lowest bands from the longest window, and higher
+ * bands from shorter windows over the most recent samples of the same history, which respond faster. The resolutions
+ * are computed in parallel on the common fork-join pool at each hop, and stitched into one array of bands. The
+ * shorter windows are calibrated to the level of the longest one for broadband signals, so that noise reads flat 
+ * across the crossovers. Pure tones may step at the crossovers instead.
+ */
+public class SpectrumFeature implements AnalysisFeature<SpectrumFeature.Result> {
+	
+	/**
+	 * Correction of the window gain: by the coherent gain, reading sinusoids at their level, or by the noise gain,
+	 * reading broadband signals at their level.
+	 */
+	public static enum Calibration {
+		TONE, NOISE
+	}
+	
+	/**
+	 * Band values of the last computed spectrum.
+	 */
+	public static class Result {
+		
+		private final float[] bandValuesDB;
+		private boolean updated;
+		
+		private Result(int bandCount) {
+			bandValuesDB = new float[bandCount];
+		}
+		
+		/**
+		 * @return Band values in dB, valid only if {@link #isUpdated()} returns <code>true</code>
+		 */
+		public float[] getBandValuesDB() {
+			return bandValuesDB;
+		}
+		
+		/**
+		 * @return <code>true</code> if a new spectrum was computed for the frame
+		 */
+		public boolean isUpdated() {
+			return updated;
+		}
+	}
+	
+	/**
+	 * FFT over the most recent samples of the history, computing a range of bands.
+	 */
+	private class Resolution extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final RealFFT fft;
+		private final float[] buffer, window;
+		private final BandMapping mapping;
+		private final int fromBand, toBand;
+		
+		private Resolution(int windowSize, WindowFunction function, Calibration calibration, BandMapping mapping, 
+				int fromBand, int toBand) {
+			fft = RealFFT.forSize(windowSize);
+			buffer = new float[windowSize];
+			this.mapping = mapping;
+			this.fromBand = fromBand;
+			this.toBand = toBand;
+			
+			// The window, unless the mapping brings its own
+			Window table = Window.of(mapping.isWindowRequired() ? function : WindowFunction.RECTANGULAR, windowSize);
+			window = table.values();
+			
+			// Calibrate the bands, scaling by the size of the FFT they come from. The bin magnitudes of broadband 
+			// signals grow with the square root of the window size, so shorter windows are brought to the level of 
+			// the longest one, keeping noise and music level across the crossovers
+			double reference = Math.sqrt((double) windowSize / history.length);
+			double gain = Calibration.NOISE.equals(calibration) ? table.getNoiseGain() : table.getCoherentGain();
+			for (int b = fromBand; b < toBand; b++) {
+				bandScales[b] = (float) (2 / (windowSize * gain) * reference);
+			}
+		}
+		
+		@Override
+		protected void compute() {
+			
+			// Unroll the most recent part of the history, oldest sample first, applying the window on the way
+			int start = historyPos - buffer.length;
+			if(start < 0) {
+				start += history.length;
+			}
+			int tail = Math.min(buffer.length, history.length - start);
+			for (int i = 0; i < tail; i++) {
+				buffer[i] = history[start + i] * window[i];
+			}
+			for (int i = tail; i < buffer.length; i++) {
+				buffer[i] = history[i - tail] * window[i];
+			}
+			
+			// Perform forward FFT and compute the bands straight from its output
+			fft.forward(buffer);
+			mapping.apply(fft, buffer, magnitudes, fromBand, toBand);
+		}
+	}
+	
+	private final Resolution[] resolutions;
+	private final float[] history, magnitudes, bandScales;
+	private final int hopSize, samplingRate;
+	private final BandMapping mapping;
+	private int historyPos, samplesSinceHop;
+	
+	/**
+	 * @param windowSize Size of the FFT window, must be a power of two
+	 * @param hopSize Number of samples between two consecutive windows, must not exceed the window size
+	 * @param samplingRate Sampling rate
+	 * @param mapping Mapping of the bins to bands, created for the window size and sampling rate
+	 */
+	public SpectrumFeature(int windowSize, int hopSize, int samplingRate, BandMapping mapping) {
+		this(windowSize, hopSize, samplingRate, WindowFunction.BLACKMAN, Calibration.TONE, mapping);
+	}
+	
+	/**
+	 * @param windowSize Size of the FFT window, must be a power of two
+	 * @param hopSize Number of samples between two consecutive windows, must not exceed the window size
+	 * @param samplingRate Sampling rate
+	 * @param window Window function, ignored by mappings that don't require a window
+	 * @param calibration Correction of the window gain
+	 * @param mapping Mapping of the bins to bands, created for the window size and sampling rate
+	 */
+	public SpectrumFeature(int windowSize, int hopSize, int samplingRate, WindowFunction window, 
+			Calibration calibration, BandMapping mapping) {
+		this(new int[] { windowSize }, new float[0], hopSize, samplingRate, window, calibration, size -> mapping);
+	}
+	
+	/**
+	 * Creates a multi-resolution spectrum. Each band is computed at the resolution of the region its center 
+	 * frequency falls into.
+	 * @param windowSizes Sizes of the FFT windows from the longest to the shortest, each a power of two
+	 * @param crossovers Frequencies separating the regions of consecutive windows, in ascending order
+	 * @param hopSize Number of samples between two consecutive spectra, must not exceed the longest window size
+	 * @param samplingRate Sampling rate
+	 * @param window Window function, ignored by mappings that don't require a window
+	 * @param calibration Correction of the window gain
+	 * @param mappings Creates the mapping for a window size, all with the same bands
+	 */
+	public SpectrumFeature(int[] windowSizes, float[] crossovers, int hopSize, int samplingRate, 
+			WindowFunction window, Calibration calibration, IntFunction<BandMapping> mappings) {
+		if(hopSize <= 0 || hopSize > windowSizes[0]) {
+			throw new IllegalArgumentException("Invalid hop size: " + hopSize);
+		}
+		if(crossovers.length != windowSizes.length - 1) {
+			throw new IllegalArgumentException("Expected " + (windowSizes.length - 1) + " crossovers");
+		}
+		this.hopSize = hopSize;
+		this.samplingRate = samplingRate;
+		mapping = mappings.apply(windowSizes[0]);
+		magnitudes = new float[mapping.getBandCount()];
+		bandScales = new float[mapping.getBandCount()];
+		history = new float[windowSizes[0]];
+		
+		// Split the bands into contiguous ranges by their center frequency
+		resolutions = new Resolution[windowSizes.length];
+		int fromBand = 0;
+		for (int r = 0; r < windowSizes.length; r++) {
+			int toBand = fromBand;
+			while(toBand < magnitudes.length && (r == crossovers.length || 
+					(mapping.getLowFrequency(toBand) + mapping.getHighFrequency(toBand)) / 2 < crossovers[r])) {
+				toBand++;
+			}
+			resolutions[r] = new Resolution(windowSizes[r], window, calibration, 
+					r == 0 ? mapping : mappings.apply(windowSizes[r]), fromBand, toBand);
+			fromBand = toBand;
+		}
+	}
+	
+	@Override
+	public Result createResult() {
+		return new Result(getBandCount());
+	}
+	
+	@Override
+	public void process(AnalysisFrame frame, Result result) {
+		result.updated = false;
+		
+		float[] mono = frame.getMono();
+		for (int i = 0; i < mono.length; i++) {
+			
+			// Add the sample to the history
+			history[historyPos] = mono[i];
+			historyPos = historyPos + 1 == history.length ? 0 : historyPos + 1;
+			
+			// If the hop ends within the block, only the last spectrum makes it into the result
+			if(++samplesSinceHop == hopSize) {
+				samplesSinceHop = 0;
+				computeSpectrum(result);
+			}
+		}
+	}
+	
+	private void computeSpectrum(Result result) {
+		if(resolutions.length == 1) {
+			resolutions[0].compute();
+		} else {
+			
+			// The tasks are reused, the bands they write don't overlap
+			for (Resolution resolution : resolutions) {
+				resolution.reinitialize();
+			}
+			ForkJoinTask.invokeAll(resolutions);
+		}
+		
+		// Update band values, calibrated for the size and window of the FFT each band comes from
+		for (int i = 0; i < magnitudes.length; i++) {
+			magnitudes[i] *= bandScales[i];
+		}
+		Decibels.toDB(magnitudes, result.bandValuesDB, magnitudes.length);
+		result.updated = true;
+	}
+	
+	/**
+	 * @return Size of the longest window
+	 */
+	public int getWindowSize() {
+		return history.length;
+	}
+	
+	public int getSamplingRate() {
+		return samplingRate;
+	}
+	
+	public int getHopSize() {
+		return hopSize;
+	}
+	
+	public BandMapping getMapping() {
+		return mapping;
+	}
+	
+	public int getBandCount() {
+		return magnitudes.length;
+	}
+	
+	/**
+	 * Returns the lower edge frequency of a band. Passing the band count returns the upper edge of the last band.
+	 * @param idx Band index
+	 * @return Frequency in Hz
+	 */
+	public int getBandStartFrequency(int idx) {
+		if(idx == magnitudes.length) {
+			return Math.round(mapping.getHighFrequency(idx - 1));
+		}
+		return Math.round(mapping.getLowFrequency(idx));
+	}
+}
@@ -0,0 +1,185 @@
+package mb.spectrum.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Levels of a few selected frequencies of the mono mix, without computing a full spectrum.
+ * <p>
+ * Two methods are offered, both costing O(k) per sample for k frequencies:
+ * <ul>
+ * <li>Goertzel filters, each running over consecutive analysis windows weighted by a Hann window. The level of a
+ * frequency is updated once per window.</li>
+ * <li>A sliding DFT, where each frequency is a resonator updated with every sample from the difference between the
+ * incoming sample and the one leaving the window, the latter rotated by the phase the frequency advances over the 
+ * window. The level reflects the last window at the end of every block, but with a rectangular window, so leakage 
+ * from strong neighbouring tones is higher than with Goertzel. A damping factor slightly below 1 keeps the 
+ * recursion stable despite rounding, and is compensated in the scaling.</li>
+ * </ul>
+ * Frequencies don't need to fall on the bins of the window. Levels are scaled so that a sinusoid reads its peak
+ * level in dB.
+ */
+public class ToneFeature implements AnalysisFeature<ToneFeature.Result> {
+	
+	public static enum Method {
+		GOERTZEL, SLIDING_DFT
+	}
+	
+	/**
+	 * Levels of the frequencies as of the end of the block.
+	 */
+	public static class Result {
+		
+		private final float[] levelsDB;
+		
+		private Result(int count) {
+			levelsDB = new float[count];
+		}
+		
+		/**
+		 * @return Level of each frequency in dB, in the order they were given
+		 */
+		public float[] getLevelsDB() {
+			return levelsDB;
+		}
+	}
+	
+	private static final double DAMPING = 0.99999;
+	
+	private final Method method;
+	private final float[] frequencies;
+	private final int windowSize;
+	private final float[] levels;
+	
+	// Goertzel state
+	private final float[] window;
+	private final double windowGain;
+	private final double[] coefficients, s1, s2;
+	private int position;
+	
+	// Sliding DFT state
+	private final float[] history;
+	private final double[] twiddleRe, twiddleIm, leavingRe, leavingIm, re, im;
+	private final double dampedGain;
+	
+	/**
+	 * @param method Method
+	 * @param frequencies Frequencies in Hz
+	 * @param windowSize Number of samples analysed per level, setting the bandwidth around each frequency
+	 * @param samplingRate Sampling rate
+	 */
+	public ToneFeature(Method method, float[] frequencies, int windowSize, int samplingRate) {
+		this.method = method;
+		this.frequencies = frequencies.clone();
+		this.windowSize = windowSize;
+		int count = frequencies.length;
+		levels = new float[count];
+		
+		coefficients = new double[count];
+		twiddleRe = new double[count];
+		twiddleIm = new double[count];
+		leavingRe = new double[count];
+		leavingIm = new double[count];
+		double dampingN = Math.pow(DAMPING, windowSize);
+		for (int i = 0; i < count; i++) {
+			double omega = 2 * Math.PI * frequencies[i] / samplingRate;
+			coefficients[i] = 2 * Math.cos(omega);
+			twiddleRe[i] = DAMPING * Math.cos(omega);
+			twiddleIm[i] = DAMPING * Math.sin(omega);
+			
+			// Rotation of the sample leaving the window, which is 1 only for whole cycles in the window
+			leavingRe[i] = dampingN * Math.cos(omega * windowSize);
+			leavingIm[i] = dampingN * Math.sin(omega * windowSize);
+		}
+		
+		if(method == Method.GOERTZEL) {
+			Window table = Window.of(WindowFunction.HANN, windowSize);
+			window = table.values();
+			windowGain = table.getCoherentGain();
+			s1 = new double[count];
+			s2 = new double[count];
+			history = null;
+			re = im = null;
+		} else {
+			window = null;
+			windowGain = 1;
+			s1 = s2 = null;
+			history = new float[windowSize];
+			re = new double[count];
+			im = new double[count];
+		}
+		dampedGain = (1 - dampingN) / (1 - DAMPING);
+	}
+	
+	@Override
+	public Result createResult() {
+		return new Result(frequencies.length);
+	}
+	
+	@Override
+	public void process(AnalysisFrame frame, Result result) {
+		float[] mono = frame.getMono();
+		if(method == Method.GOERTZEL) {
+			processGoertzel(mono);
+		} else {
+			processSlidingDFT(mono);
+		}
+		
+		// Every holder gets the current values, as frames may be used alternately
+		Decibels.toDB(levels, result.levelsDB, levels.length);
+	}
+	
+	private void processGoertzel(float[] samples) {
+		int count = frequencies.length;
+		for (int n = 0; n < samples.length; n++) {
+			double x = samples[n] * window[position];
+			for (int i = 0; i < count; i++) {
+				double s = x + coefficients[i] * s1[i] - s2[i];
+				s2[i] = s1[i];
+				s1[i] = s;
+			}
+			
+			// At the end of the window, compute the magnitudes and start over
+			if(++position == windowSize) {
+				position = 0;
+				for (int i = 0; i < count; i++) {
+					double power = s1[i] * s1[i] + s2[i] * s2[i] - coefficients[i] * s1[i] * s2[i];
+					levels[i] = (float) (2 * Math.sqrt(Math.max(0, power)) / (windowSize * windowGain));
+				}
+				Arrays.fill(s1, 0);
+				Arrays.fill(s2, 0);
+			}
+		}
+	}
+	
+	private void processSlidingDFT(float[] samples) {
+		int count = frequencies.length;
+		for (int n = 0; n < samples.length; n++) {
+			double x = samples[n], leaving = history[position];
+			history[position] = samples[n];
+			position = position + 1 == windowSize ? 0 : position + 1;
+			for (int i = 0; i < count; i++) {
+				double r = re[i] + x - leavingRe[i] * leaving, m = im[i] - leavingIm[i] * leaving;
+				re[i] = r * twiddleRe[i] - m * twiddleIm[i];
+				im[i] = r * twiddleIm[i] + m * twiddleRe[i];
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			levels[i] = (float) (2 * Math.sqrt(re[i] * re[i] + im[i] * im[i]) / dampedGain);
+		}
+	}
+	
+	public Method getMethod() {
+		return method;
+	}
+	
+	/**
+	 * @return Copy of the frequencies in Hz
+	 */
+	public float[] getFrequencies() {
+		return frequencies.clone();
+	}
+	
+	public int getWindowSize() {
+		return windowSize;
+	}
+}
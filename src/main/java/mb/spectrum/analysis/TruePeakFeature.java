@@ -0,0 +1,112 @@
+package mb.spectrum.analysis;
+
+/**
+ * True peak of both channels, estimated by 4x oversampling as recommended by ITU-R BS.1770-4, Annex 2.
+ * <p>
+ * The interpolation filter is a Kaiser windowed sinc of 48 taps, split into 4 phases of 12 taps. The first phase
+ * is the identity, as the sinc is centered on an input sample, so only the three intermediate phases are computed:
+ * 36 multiply-adds per sample and channel. The last input samples of each block are kept, so that the interpolation
+ * streams across block boundaries, with a delay of half the filter length.
+ */
+public class TruePeakFeature implements AnalysisFeature<TruePeakFeature.Result> {
+	
+	/**
+	 * Linear true peak levels of the block.
+	 */
+	public static class Result {
+		
+		private float left, right;
+		
+		public float getLeft() {
+			return left;
+		}
+		
+		public float getRight() {
+			return right;
+		}
+	}
+	
+	private static final int FACTOR = 4, TAPS = 12;
+	private static final double KAISER_BETA = 8;
+	
+	// Coefficients of the intermediate phases, in the order of the samples they apply to
+	private static final float[][] PHASES = createPhases();
+	
+	private final Channel left = new Channel(), right = new Channel();
+	
+	/**
+	 * Computes the phases of the windowed sinc, each normalized to unity gain at DC.
+	 */
+	private static float[][] createPhases() {
+		float[][] phases = new float[FACTOR - 1][TAPS];
+		double halfLength = TAPS / 2 + 0.25;
+		for (int p = 1; p < FACTOR; p++) {
+			double[] taps = new double[TAPS];
+			double sum = 0;
+			for (int j = 0; j < TAPS; j++) {
+				
+				// Distance in input samples from the interpolated point between samples TAPS / 2 - 1 and TAPS / 2
+				double t = TAPS / 2 - 1 - j + (double) p / FACTOR;
+				double sinc = Math.sin(Math.PI * t) / (Math.PI * t);
+				double window = WindowFunction.besselI0(KAISER_BETA * Math.sqrt(1 - (t / halfLength) * (t / halfLength)))
+						/ WindowFunction.besselI0(KAISER_BETA);
+				taps[j] = sinc * window;
+				sum += taps[j];
+			}
+			for (int j = 0; j < TAPS; j++) {
+				phases[p - 1][j] = (float) (taps[j] / sum);
+			}
+		}
+		return phases;
+	}
+	
+	@Override
+	public Result createResult() {
+		return new Result();
+	}
+	
+	@Override
+	public void process(AnalysisFrame frame, Result result) {
+		result.left = left.process(frame.getLeft());
+		result.right = right.process(frame.getRight());
+	}
+	
+	/**
+	 * Interpolation state of a single channel
+	 */
+	private static class Channel {
+		
+		// The last samples of the previous block followed by the current block
+		private float[] buffer = new float[TAPS - 1];
+		
+		float process(float[] samples) {
+			if(buffer.length != samples.length + TAPS - 1) {
+				
+				// Only when the block size changes, keeping the history
+				float[] resized = new float[samples.length + TAPS - 1];
+				System.arraycopy(buffer, buffer.length - (TAPS - 1), resized, 0, TAPS - 1);
+				buffer = resized;
+			}
+			System.arraycopy(samples, 0, buffer, TAPS - 1, samples.length);
+			
+			float[] c1 = PHASES[0], c2 = PHASES[1], c3 = PHASES[2];
+			float peak = 0;
+			for (int s = 0; s < samples.length; s++) {
+				float y1 = 0, y2 = 0, y3 = 0;
+				for (int j = 0; j < TAPS; j++) {
+					float x = buffer[s + j];
+					y1 += c1[j] * x;
+					y2 += c2[j] * x;
+					y3 += c3[j] * x;
+				}
+				float sample = Math.abs(buffer[s + TAPS / 2 - 1]);
+				float y = Math.max(Math.max(Math.abs(y1), Math.abs(y2)), Math.max(Math.abs(y3), sample));
+				peak = y > peak ? y : peak;
+			}
+			
+			// Keep the tail for the next block
+			System.arraycopy(buffer, samples.length, buffer, 0, TAPS - 1);
+			return peak;
+		}
+	}
+}
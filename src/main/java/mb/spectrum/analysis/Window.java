@@ -0,0 +1,108 @@
+package mb.spectrum.analysis;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table of a window function for a given size, along with the gains needed to calibrate the spectrum.
+ * <p>
+ * Tables are computed once per function, size and parameter and shared, as they are immutable, so views
+ * using the same window don't pay for it twice.
+ */
+public class Window {
+	
+	private static final Map<List<Object>, Window> TABLES = new HashMap<>();
+	
+	private final WindowFunction function;
+	private final float[] values;
+	private final double coherentGain, noiseGain;
+	
+	/**
+	 * Returns the shared table of a window with its default parameter.
+	 * @param function Window function
+	 * @param size Window size
+	 * @return Window table
+	 */
+	public static Window of(WindowFunction function, int size) {
+		return of(function, size, function.getDefaultParameter());
+	}
+	
+	/**
+	 * Returns the shared table of a window, creating it on first use.
+	 * @param function Window function
+	 * @param size Window size
+	 * @param parameter Shape parameter of the Kaiser and Gaussian windows
+	 * @return Window table
+	 */
+	public static Window of(WindowFunction function, int size, double parameter) {
+		List<Object> key = Arrays.asList(function, size, parameter);
+		synchronized (TABLES) {
+			Window window = TABLES.get(key);
+			if(window == null) {
+				window = new Window(function, size, parameter);
+				TABLES.put(key, window);
+			}
+			return window;
+		}
+	}
+	
+	private Window(WindowFunction function, int size, double parameter) {
+		this.function = function;
+		values = new float[size];
+		double sum = 0, sumOfSquares = 0;
+		for (int i = 0; i < size; i++) {
+			double value = function.value(i, size, parameter);
+			values[i] = (float) value;
+			sum += value;
+			sumOfSquares += value * value;
+		}
+		coherentGain = sum / size;
+		noiseGain = Math.sqrt(sumOfSquares / size);
+	}
+	
+	/**
+	 * @return Values of the window, not to be modified
+	 */
+	float[] values() {
+		return values;
+	}
+	
+	/**
+	 * @param i Sample index
+	 * @return Window value
+	 */
+	public float get(int i) {
+		return values[i];
+	}
+	
+	public int size() {
+		return values.length;
+	}
+	
+	public WindowFunction getFunction() {
+		return function;
+	}
+	
+	/**
+	 * @return Mean of the window, by which the magnitude of a sinusoid centered on a bin is scaled
+	 */
+	public double getCoherentGain() {
+		return coherentGain;
+	}
+	
+	/**
+	 * @return Root mean square of the window, by which the magnitude of broadband noise is scaled
+	 */
+	public double getNoiseGain() {
+		return noiseGain;
+	}
+	
+	/**
+	 * @return Equivalent noise bandwidth in bins
+	 */
+	public double getEquivalentNoiseBandwidth() {
+		return noiseGain * noiseGain / (coherentGain * coherentGain);
+	}
+}
@@ -0,0 +1,68 @@
+package mb.spectrum.analysis;
+
+/**
+ * Window functions applied to the samples before the FFT, in their symmetric form.
+ * <p>
+ * Kaiser and Gaussian windows take a parameter, beta and sigma relative to half the window length respectively,
+ * with a default suited to spectrum display. The other windows ignore it.
+ */
+public enum WindowFunction {
+	BLACKMAN(0), HANN(0), HAMMING(0), BLACKMAN_HARRIS(0), FLAT_TOP(0), KAISER(9), GAUSSIAN(0.4), RECTANGULAR(0);
+	
+	private final double defaultParameter;
+	
+	private WindowFunction(double defaultParameter) {
+		this.defaultParameter = defaultParameter;
+	}
+	
+	public double getDefaultParameter() {
+		return defaultParameter;
+	}
+	
+	/**
+	 * Computes a single value of the window.
+	 * @param i Sample index
+	 * @param size Window size
+	 * @param parameter Shape parameter of the Kaiser and Gaussian windows
+	 * @return Window value
+	 */
+	public double value(int i, int size, double parameter) {
+		if(size == 1) {
+			return 1;
+		}
+		double x = 2 * Math.PI * i / (size - 1);
+		switch (this) {
+		case BLACKMAN:
+			return 0.42 - 0.5 * Math.cos(x) + 0.08 * Math.cos(2 * x);
+		case HANN:
+			return 0.5 - 0.5 * Math.cos(x);
+		case HAMMING:
+			return 0.54 - 0.46 * Math.cos(x);
+		case BLACKMAN_HARRIS:
+			return 0.35875 - 0.48829 * Math.cos(x) + 0.14128 * Math.cos(2 * x) - 0.01168 * Math.cos(3 * x);
+		case FLAT_TOP:
+			return 0.21557895 - 0.41663158 * Math.cos(x) + 0.277263158 * Math.cos(2 * x)
+					- 0.083578947 * Math.cos(3 * x) + 0.006947368 * Math.cos(4 * x);
+		case KAISER:
+			double r = 2.0 * i / (size - 1) - 1;
+			return besselI0(parameter * Math.sqrt(1 - r * r)) / besselI0(parameter);
+		case GAUSSIAN:
+			double g = (i - (size - 1) / 2.0) / (parameter * (size - 1) / 2.0);
+			return Math.exp(-0.5 * g * g);
+		default:
+			return 1;
+		}
+	}
+	
+	/**
+	 * Modified Bessel function of the first kind and order 0, by its power series
+	 */
+	static double besselI0(double x) {
+		double sum = 1, term = 1;
+		for (int k = 1; k < 50; k++) {
+			term *= (x / (2 * k)) * (x / (2 * k));
+			sum += term;
+		}
+		return sum;
+	}
+}
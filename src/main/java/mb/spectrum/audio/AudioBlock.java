@@ -0,0 +1,60 @@
+package mb.spectrum.audio;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size stereo block of samples, preallocated once and reused by {@link SpscRing}.
+ */
+public class AudioBlock {
+	
+	private final float[] left, right;
+	private long sequence, captureNanos;
+	
+	public AudioBlock(int size) {
+		left = new float[size];
+		right = new float[size];
+	}
+	
+	/**
+	 * Copies the samples of both channels into the block, applying the gain on the fly.
+	 * Samples that don't fit are ignored and missing samples are zeroed.
+	 * @param left Left channel samples
+	 * @param right Right channel samples
+	 * @param gain Gain multiplier
+	 * @param sequence Sequence number of the block as counted by the producer
+	 * @param captureNanos Time stamp of the capture as given by {@link System#nanoTime()}
+	 */
+	public void write(float[] left, float[] right, float gain, long sequence, long captureNanos) {
+		int length = Math.min(Math.min(left.length, right.length), this.left.length);
+		for (int i = 0; i < length; i++) {
+			this.left[i] = left[i] * gain;
+			this.right[i] = right[i] * gain;
+		}
+		if(length < this.left.length) {
+			Arrays.fill(this.left, length, this.left.length, 0);
+			Arrays.fill(this.right, length, this.right.length, 0);
+		}
+		this.sequence = sequence;
+		this.captureNanos = captureNanos;
+	}
+
+	public float[] getLeft() {
+		return left;
+	}
+
+	public float[] getRight() {
+		return right;
+	}
+	
+	public int size() {
+		return left.length;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public long getCaptureNanos() {
+		return captureNanos;
+	}
+}
@@ -0,0 +1,96 @@
+package mb.spectrum.audio;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.Line;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.TargetDataLine;
+
+/**
+ * Enumeration of the capture devices and formats available through Java Sound.
+ */
+public class AudioDevices {
+	
+	private static final int[] SAMPLING_RATES = { 
+			8000, 11025, 16000, 22050, 32000, 44100, 48000, 88200, 96000, 176400, 192000 };
+	
+	/**
+	 * @return Names of all mixers providing a capture line
+	 */
+	public static List<String> getInputDevices() {
+		List<String> devices = new ArrayList<>();
+		for (Mixer.Info info : AudioSystem.getMixerInfo()) {
+			if(AudioSystem.getMixer(info).isLineSupported(new Line.Info(TargetDataLine.class))) {
+				devices.add(info.getName());
+			}
+		}
+		return devices;
+	}
+	
+	/**
+	 * @param name Name of the mixer
+	 * @return The mixer or null if there is no mixer of the given name
+	 */
+	public static Mixer getMixer(String name) {
+		for (Mixer.Info info : AudioSystem.getMixerInfo()) {
+			if(info.getName().equals(name)) {
+				return AudioSystem.getMixer(info);
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * @param mixer Mixer or null for the default device
+	 * @param format Format to be captured
+	 * @return Whether the mixer can capture the format
+	 */
+	public static boolean isFormatSupported(Mixer mixer, AudioFormat format) {
+		DataLine.Info info = new DataLine.Info(TargetDataLine.class, format);
+		return mixer != null ? mixer.isLineSupported(info) : AudioSystem.isLineSupported(info);
+	}
+	
+	/**
+	 * @return Common sampling rates in ascending order
+	 */
+	public static List<Integer> getSamplingRates() {
+		List<Integer> rates = new ArrayList<>();
+		for (int rate : SAMPLING_RATES) {
+			rates.add(rate);
+		}
+		return rates;
+	}
+	
+	/**
+	 * @param mixer Mixer or null for the default device
+	 * @param stereo Whether to capture two channels
+	 * @param bitDepth Bits per sample
+	 * @return Common sampling rates the mixer can capture at
+	 */
+	public static List<Integer> getSupportedSamplingRates(Mixer mixer, boolean stereo, int bitDepth) {
+		List<Integer> rates = new ArrayList<>();
+		for (int rate : SAMPLING_RATES) {
+			if(isFormatSupported(mixer, new AudioFormat(rate, bitDepth, stereo ? 2 : 1, true, false))) {
+				rates.add(rate);
+			}
+		}
+		return rates;
+	}
+	
+	/**
+	 * Obtains a capture line of the given format.
+	 * @param mixer Mixer or null for the default device
+	 * @param format Format to be captured
+	 * @return Line, not opened yet
+	 */
+	public static TargetDataLine getTargetDataLine(Mixer mixer, AudioFormat format) throws LineUnavailableException {
+		return mixer != null ? 
+				(TargetDataLine) mixer.getLine(new DataLine.Info(TargetDataLine.class, format)) : 
+				AudioSystem.getTargetDataLine(format);
+	}
+}
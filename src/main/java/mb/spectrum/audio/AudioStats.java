@@ -0,0 +1,151 @@
+package mb.spectrum.audio;
+
+import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Capture health statistics of a {@link mb.spectrum.PlatformStrategy}.
+ * <p>
+ * The audio thread time stamps every block on arrival and again when the listener returns. Arrival intervals are 
+ * compared against the expected block period to detect late and missing blocks, while the time spent in the 
+ * listener is kept in a rolling histogram and compared against the period to detect callback overruns. The 
+ * listener only hands the block over; the analysis runs on another thread and is not part of this time.
+ * Blocks dropped further down the line because the analysis fell behind are reported by the consumer.
+ */
+public class AudioStats {
+	
+	// An interval this much longer than the period counts as late
+	private static final double LATE_BLOCK_FACTOR = 1.5;
+	
+	private static final int HISTOGRAM_BUCKETS = 200;
+	private static final int HISTOGRAM_WINDOW = 1024;
+	
+	private final long blockPeriodNanos;
+	private final RollingHistogram callbackTimes;
+	private long lastArrivalNanos;
+	
+	// Written by the audio thread only
+	private volatile long blocks, lateBlocks, gaps, missingBlocks, overruns, droppedBlocks, maxCallbackNanos;
+	
+	/**
+	 * @param bufferSize Number of samples per block
+	 * @param samplingRate Sampling rate
+	 */
+	public AudioStats(int bufferSize, float samplingRate) {
+		blockPeriodNanos = (long) (TimeUnit.SECONDS.toNanos(1) * (bufferSize / (double) samplingRate));
+		
+		// Covers up to twice the block period
+		callbackTimes = new RollingHistogram(
+				Math.max(1, blockPeriodNanos * 2 / HISTOGRAM_BUCKETS), HISTOGRAM_BUCKETS, HISTOGRAM_WINDOW);
+	}
+	
+	/**
+	 * Called by the audio thread when a block arrives, before it is handed to the listener.
+	 * @return Arrival time stamp to be passed to {@link #blockFinished(long)}
+	 */
+	public long blockArrived() {
+		long now = System.nanoTime();
+		if(blocks > 0) {
+			
+			// Blocks are missing from two periods on, shorter intervals beyond the late factor are late blocks
+			double periods = (now - lastArrivalNanos) / (double) blockPeriodNanos;
+			if(periods >= 2) {
+				gaps++;
+				missingBlocks += Math.round(periods) - 1;
+			} else if(periods > LATE_BLOCK_FACTOR) {
+				lateBlocks++;
+			}
+		}
+		lastArrivalNanos = now;
+		blocks++;
+		return now;
+	}
+	
+	/**
+	 * Called by the audio thread when the listener returns.
+	 * @param arrivalNanos Time stamp returned by {@link #blockArrived()}
+	 */
+	public void blockFinished(long arrivalNanos) {
+		long callbackNanos = System.nanoTime() - arrivalNanos;
+		callbackTimes.record(callbackNanos);
+		if(callbackNanos > maxCallbackNanos) {
+			maxCallbackNanos = callbackNanos;
+		}
+		if(callbackNanos > blockPeriodNanos) {
+			overruns++;
+		}
+	}
+	
+	/**
+	 * Called by the audio thread when a block is dropped because the analysis is behind.
+	 */
+	public void blockDropped() {
+		droppedBlocks++;
+	}
+	
+	public long getBlockPeriodNanos() {
+		return blockPeriodNanos;
+	}
+	
+	public long getBlocks() {
+		return blocks;
+	}
+	
+	/**
+	 * @return Number of blocks that arrived late, without any block being missed
+	 */
+	public long getLateBlocks() {
+		return lateBlocks;
+	}
+	
+	/**
+	 * @return Number of times one or more blocks were missing between two arrivals
+	 */
+	public long getGaps() {
+		return gaps;
+	}
+	
+	/**
+	 * @return Estimated total number of blocks missing over all gaps
+	 */
+	public long getMissingBlocks() {
+		return missingBlocks;
+	}
+	
+	/**
+	 * @return Number of blocks whose listener callback took longer than the block period
+	 */
+	public long getOverruns() {
+		return overruns;
+	}
+	
+	/**
+	 * @return Number of blocks dropped because the analysis was behind
+	 */
+	public long getDroppedBlocks() {
+		return droppedBlocks;
+	}
+	
+	public long getMaxCallbackNanos() {
+		return maxCallbackNanos;
+	}
+	
+	/**
+	 * @return Histogram of the listener callback time of the most recent blocks in nanoseconds
+	 */
+	public RollingHistogram getCallbackTimes() {
+		return callbackTimes;
+	}
+	
+	@Override
+	public String toString() {
+		return MessageFormat.format(
+				"Audio: blocks {0}, late {1}, gaps {2} ({3} blocks missing), overruns {4}, dropped {5}, " + 
+				"callback p50 {6}us, p99 {7}us, max {8}us, period {9}us", 
+				blocks, lateBlocks, gaps, missingBlocks, overruns, droppedBlocks, 
+				TimeUnit.NANOSECONDS.toMicros(callbackTimes.getPercentile(50)),
+				TimeUnit.NANOSECONDS.toMicros(callbackTimes.getPercentile(99)),
+				TimeUnit.NANOSECONDS.toMicros(maxCallbackNanos),
+				TimeUnit.NANOSECONDS.toMicros(blockPeriodNanos));
+	}
+}
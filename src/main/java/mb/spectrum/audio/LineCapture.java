@@ -0,0 +1,163 @@
+package mb.spectrum.audio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.TargetDataLine;
+
+import mb.spectrum.AudioListener;
+
+/**
+ * Captures audio straight from a {@link TargetDataLine} on a dedicated thread.
+ * <p>
+ * Each block is read into a reusable byte buffer and converted from 16 or 24 bit little-endian PCM to float 
+ * in a single loop into preallocated channel arrays, which are then handed to the listener. The size of the 
+ * line buffer is independent of the block size, so the latency of the line can be tuned on its own.
+ */
+public class LineCapture implements Runnable {
+	
+	private static final float SCALE_16 = 1f / 0x8000;
+	private static final float SCALE_24 = 1f / 0x800000;
+	
+	private final Mixer mixer;
+	private final AudioFormat format;
+	private final int blockSize, lineBufferSize;
+	private final ByteBuffer buffer;
+	private final float[] left, right;
+	private final AudioStats stats;
+	
+	private TargetDataLine line;
+	private Thread thread;
+	private volatile boolean running;
+	private volatile AudioListener listener;
+	
+	/**
+	 * @param mixer Mixer to capture from or null for the default device
+	 * @param stereo Whether to capture two channels
+	 * @param blockSize Number of frames per block handed to the listener
+	 * @param samplingRate Sampling rate
+	 * @param bitDepth Bits per sample, 16 or 24
+	 * @param lineBufferSize Size of the line buffer in frames
+	 */
+	public LineCapture(Mixer mixer, boolean stereo, int blockSize, int samplingRate, int bitDepth, int lineBufferSize) {
+		if(bitDepth != 16 && bitDepth != 24) {
+			throw new IllegalArgumentException("Unsupported bit depth: " + bitDepth);
+		}
+		this.mixer = mixer;
+		format = new AudioFormat(samplingRate, bitDepth, stereo ? 2 : 1, true, false);
+		this.blockSize = blockSize;
+		this.lineBufferSize = lineBufferSize;
+		buffer = ByteBuffer.allocate(blockSize * format.getFrameSize()).order(ByteOrder.LITTLE_ENDIAN);
+		left = new float[blockSize];
+		right = stereo ? new float[blockSize] : left;
+		stats = new AudioStats(blockSize, samplingRate);
+	}
+	
+	/**
+	 * Opens the line and starts capturing.
+	 */
+	public void start() {
+		try {
+			line = AudioDevices.getTargetDataLine(mixer, format);
+			line.open(format, lineBufferSize * format.getFrameSize());
+		} catch (LineUnavailableException | IllegalArgumentException e) {
+			throw new RuntimeException("Audio format not supported", e);
+		}
+		line.start();
+		
+		running = true;
+		thread = new Thread(this, "Line Capture");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MAX_PRIORITY);
+		thread.start();
+	}
+	
+	/**
+	 * Stops capturing and closes the line.
+	 */
+	public void stop() {
+		running = false;
+		if(line != null) {
+			line.stop();
+			line.flush();
+		}
+		if(thread != null) {
+			try {
+				thread.join(TimeUnit.SECONDS.toMillis(1));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			thread = null;
+		}
+		if(line != null) {
+			line.close();
+			line = null;
+		}
+	}
+	
+	@Override
+	public void run() {
+		byte[] bytes = buffer.array();
+		while(running) {
+			
+			// Blocks until a whole block is available, fewer bytes are only returned when the line is stopped
+			int read = 0;
+			while(running && read < bytes.length) {
+				read += line.read(bytes, read, bytes.length - read);
+			}
+			if(!running) {
+				break;
+			}
+			
+			convert();
+			
+			AudioListener current = listener;
+			if(current != null) {
+				long arrival = stats.blockArrived();
+				current.samples(left, right);
+				stats.blockFinished(arrival);
+			}
+		}
+	}
+	
+	private void convert() {
+		boolean stereo = right != left;
+		if(format.getSampleSizeInBits() == 16) {
+			if(stereo) {
+				for (int i = 0, pos = 0; i < blockSize; i++, pos += 4) {
+					left[i] = buffer.getShort(pos) * SCALE_16;
+					right[i] = buffer.getShort(pos + 2) * SCALE_16;
+				}
+			} else {
+				for (int i = 0, pos = 0; i < blockSize; i++, pos += 2) {
+					left[i] = buffer.getShort(pos) * SCALE_16;
+				}
+			}
+		} else {
+			byte[] bytes = buffer.array();
+			int step = stereo ? 6 : 3;
+			for (int i = 0, pos = 0; i < blockSize; i++, pos += step) {
+				left[i] = ((bytes[pos] & 0xFF) | (bytes[pos + 1] & 0xFF) << 8 | bytes[pos + 2] << 16) * SCALE_24;
+				if(stereo) {
+					right[i] = ((bytes[pos + 3] & 0xFF) | (bytes[pos + 4] & 0xFF) << 8 | bytes[pos + 5] << 16) * SCALE_24;
+				}
+			}
+		}
+	}
+	
+	public void setListener(AudioListener listener) {
+		this.listener = listener;
+	}
+	
+	public AudioFormat getFormat() {
+		return format;
+	}
+	
+	public AudioStats getStats() {
+		return stats;
+	}
+}
@@ -0,0 +1,96 @@
+package mb.spectrum.audio;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of the last N recorded values using fixed width buckets. Values above the last bucket 
+ * are counted in the last bucket.
+ * <p>
+ * Recording is allocation-free and meant to be done from a single thread. Other threads may read 
+ * it at any time, in which case the outcome is approximate.
+ */
+public class RollingHistogram {
+	
+	private final long bucketWidth;
+	private final int[] buckets;
+	private final short[] window;
+	private int windowPos, count;
+	
+	/**
+	 * @param bucketWidth Width of a single bucket
+	 * @param bucketCount Number of buckets, at most {@link Short#MAX_VALUE}
+	 * @param windowSize Number of most recent values the histogram covers
+	 */
+	public RollingHistogram(long bucketWidth, int bucketCount, int windowSize) {
+		if(bucketCount > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many buckets: " + bucketCount);
+		}
+		this.bucketWidth = bucketWidth;
+		buckets = new int[bucketCount];
+		window = new short[windowSize];
+	}
+	
+	public void record(long value) {
+		int idx = (int) Math.min(Math.max(value, 0) / bucketWidth, buckets.length - 1);
+		
+		// Forget the oldest value once the window is full
+		if(count == window.length) {
+			buckets[window[windowPos]]--;
+		} else {
+			count++;
+		}
+		
+		window[windowPos] = (short) idx;
+		windowPos = windowPos + 1 == window.length ? 0 : windowPos + 1;
+		buckets[idx]++;
+	}
+	
+	/**
+	 * Returns an estimate of the given percentile as the upper edge of the bucket it falls into.
+	 * @param percentile Percentile between 0 and 100
+	 * @return Percentile value or 0 if nothing was recorded
+	 */
+	public long getPercentile(double percentile) {
+		int total = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			total += buckets[i];
+		}
+		if(total == 0) {
+			return 0;
+		}
+		
+		long rank = (long) Math.ceil(total * percentile / 100);
+		long sum = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			sum += buckets[i];
+			if(sum >= rank) {
+				return (i + 1) * bucketWidth;
+			}
+		}
+		return buckets.length * bucketWidth;
+	}
+	
+	/**
+	 * @return Copy of the bucket counts
+	 */
+	public int[] getBuckets() {
+		return Arrays.copyOf(buckets, buckets.length);
+	}
+	
+	public long getBucketWidth() {
+		return bucketWidth;
+	}
+	
+	/**
+	 * @return Number of values currently covered
+	 */
+	public int getCount() {
+		return count;
+	}
+	
+	public void clear() {
+		Arrays.fill(buckets, 0);
+		windowPos = 0;
+		count = 0;
+	}
+}
@@ -0,0 +1,103 @@
+package mb.spectrum.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free single-producer/single-consumer ring of preallocated slots.
+ * <p>
+ * The producer claims a slot, fills it in place and publishes it, while the consumer peeks at the oldest 
+ * published slot and releases it when done. Neither side blocks or allocates - when the ring is full the 
+ * producer simply gets <code>null</code> and the drop is counted.
+ * <p>
+ * Exactly one thread may act as producer and exactly one as consumer at any given time.
+ */
+public class SpscRing<T> {
+	
+	private final Object[] slots;
+	private final int mask;
+	
+	// Next position to be published, written by the producer only
+	private final AtomicLong head = new AtomicLong();
+	
+	// Next position to be consumed, written by the consumer only
+	private final AtomicLong tail = new AtomicLong();
+	
+	// Written by the producer only
+	private volatile long dropped;
+	
+	/**
+	 * @param capacity Number of slots, must be a power of two
+	 * @param factory Creates the preallocated slots
+	 */
+	public SpscRing(int capacity, Supplier<T> factory) {
+		if(capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+		}
+		slots = new Object[capacity];
+		for (int i = 0; i < capacity; i++) {
+			slots[i] = factory.get();
+		}
+		mask = capacity - 1;
+	}
+	
+	/**
+	 * Returns the next free slot to be filled by the producer or <code>null</code> if the ring is full.
+	 * The slot becomes visible to the consumer only after {@link #publish()} is called.
+	 * @return Free slot or <code>null</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public T claim() {
+		long h = head.get();
+		if(h - tail.get() >= slots.length) {
+			dropped++;
+			return null;
+		}
+		return (T) slots[(int) h & mask];
+	}
+	
+	/**
+	 * Publishes the slot returned by the last successful {@link #claim()}.
+	 */
+	public void publish() {
+		head.lazySet(head.get() + 1);
+	}
+	
+	/**
+	 * Returns the oldest published slot without removing it or <code>null</code> if the ring is empty.
+	 * @return Oldest published slot or <code>null</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public T peek() {
+		long t = tail.get();
+		if(t == head.get()) {
+			return null;
+		}
+		return (T) slots[(int) t & mask];
+	}
+	
+	/**
+	 * Hands the slot returned by the last {@link #peek()} back to the producer.
+	 */
+	public void release() {
+		tail.lazySet(tail.get() + 1);
+	}
+	
+	/**
+	 * @return Number of published slots not yet released by the consumer
+	 */
+	public int size() {
+		return (int) (head.get() - tail.get());
+	}
+	
+	public int capacity() {
+		return slots.length;
+	}
+	
+	/**
+	 * @return Number of claims rejected because the ring was full
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+}
@@ -1,5 +1,9 @@
 package mb.spectrum.desktop;
 
+import java.util.List;
+
+import javax.sound.sampled.Mixer;
+
 import ddf.minim.AudioPlayer;
 import ddf.minim.AudioSource;
 import ddf.minim.Minim;
@@ -9,17 +13,38 @@ import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.stage.Stage;
 import mb.spectrum.AudioListener;
+import mb.spectrum.ConfigService;
 import mb.spectrum.MinimInitializer;
 import mb.spectrum.PlatformStrategy;
 import mb.spectrum.UiUtils;
+import mb.spectrum.audio.AudioDevices;
+import mb.spectrum.audio.AudioStats;
+import mb.spectrum.audio.LineCapture;
 
 public class DesktopStrategy implements PlatformStrategy {
 	
+	// Line buffer size in frames when capturing directly from the line, 0 defaults to twice the block size
+	private static final int LINE_BUFFER_SIZE = Integer.valueOf(
+			ConfigService.getInstance().getOrCreateProperty("mb.line-buffer-size", String.valueOf(0)));
+	
+	private final boolean directLine;
 	private Minim minim;
 	private AudioSource in;
+	private LineCapture line;
+	private Mixer inputMixer;
 	private Stage stage;
+	private AudioStats stats;
 	
 	public DesktopStrategy() {
+		this(false);
+	}
+	
+	/**
+	 * @param directLine Whether to capture straight from a {@link javax.sound.sampled.TargetDataLine} 
+	 * instead of the Minim line in. Audio files are always played through Minim.
+	 */
+	protected DesktopStrategy(boolean directLine) {
+		this.directLine = directLine;
 		minim = new Minim(new JSMinim(new MinimInitializer()));
 	}
 	
@@ -50,23 +75,41 @@ public class DesktopStrategy implements PlatformStrategy {
 
     @Override
 	public void startAudio(boolean stereo, int bufferSize, int samplingRate, int bitRate) {
+		if(directLine) {
+			line = new LineCapture(inputMixer, stereo, bufferSize, samplingRate, bitRate, 
+					LINE_BUFFER_SIZE > 0 ? LINE_BUFFER_SIZE : bufferSize * 2);
+			line.start();
+			stats = line.getStats();
+			return;
+		}
+		
+		minim.setInputMixer(inputMixer);
 		in = minim.getLineIn(stereo ? Minim.STEREO : Minim.MONO, bufferSize, samplingRate, bitRate);
 		if(in == null) {
 			throw new RuntimeException("Audio format not supported");
 		}
+		stats = new AudioStats(bufferSize, samplingRate);
 	}
 	
 	@Override
 	public void startAudio(String audioFilePath, int bufferSize) {
 		in = minim.loadFile(audioFilePath, bufferSize);
 		((AudioPlayer) in).loop();
+		stats = new AudioStats(bufferSize, in.sampleRate());
 	}
 
 	@Override
 	public void setListener(AudioListener listener) {
+		if(line != null) {
+			line.setListener(listener);
+			return;
+		}
+		
 		in.addListener(new ddf.minim.AudioListener() {
 			public void samples(float[] left, float[] right) {
+				long arrival = stats.blockArrived();
 				listener.samples(left, right);
+				stats.blockFinished(arrival);
 			}
 			public void samples(float[] paramArrayOfFloat) {
 			}
@@ -75,13 +118,38 @@ public class DesktopStrategy implements PlatformStrategy {
 
 	@Override
 	public void stopAudio() {
+		if(line != null) {
+			line.stop();
+			line = null;
+		}
 		if(in != null) {
 			in.close();
+			in = null;
 		}
 		if(minim != null) {
 			minim.stop();
 		}
 	}
+	
+	@Override
+	public List<String> getInputDevices() {
+		return AudioDevices.getInputDevices();
+	}
+	
+	@Override
+	public void setInputDevice(String device) {
+		inputMixer = device != null ? AudioDevices.getMixer(device) : null;
+	}
+	
+	@Override
+	public List<Integer> getSupportedSamplingRates(boolean stereo, int bitRate) {
+		return AudioDevices.getSupportedSamplingRates(inputMixer, stereo, bitRate);
+	}
+
+	@Override
+	public AudioStats getStats() {
+		return stats;
+	}
 
 	@Override
 	public void close() {
@@ -0,0 +1,11 @@
+package mb.spectrum.desktop;
+
+/**
+ * Desktop strategy capturing straight from a {@link javax.sound.sampled.TargetDataLine}, bypassing the Minim line in.
+ */
+public class LineStrategy extends DesktopStrategy {
+	
+	public LineStrategy() {
+		super(true);
+	}
+}
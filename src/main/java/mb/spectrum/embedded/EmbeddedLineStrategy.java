@@ -0,0 +1,11 @@
+package mb.spectrum.embedded;
+
+/**
+ * Embedded strategy capturing straight from a {@link javax.sound.sampled.TargetDataLine}, bypassing the Minim line in.
+ */
+public class EmbeddedLineStrategy extends EmbeddedStrategy {
+	
+	public EmbeddedLineStrategy() {
+		super(true);
+	}
+}
@@ -7,6 +7,14 @@ import mb.spectrum.gpio.StageGpioController;
 public class EmbeddedStrategy extends DesktopStrategy {
 	
 	private StageGpioController gpio;
+	
+	public EmbeddedStrategy() {
+		this(false);
+	}
+	
+	protected EmbeddedStrategy(boolean directLine) {
+		super(directLine);
+	}
 
 	@Override
 	public void initialize(Stage stage) {
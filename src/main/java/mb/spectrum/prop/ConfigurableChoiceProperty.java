@@ -13,6 +13,11 @@ public class ConfigurableChoiceProperty extends ConfigurableProperty<String> {
 		super(name, StringUtils.EMPTY, StringUtils.EMPTY, initValue, null);
 		this.values = values;
 		idx = values.indexOf(initValue);
+		
+		// Keep the index in sync when the value is set directly
+		prop.addListener((obs, oldVal, newVal) -> {
+			idx = this.values.indexOf(newVal);
+		});
 	}
 
 	@Override
@@ -41,6 +46,15 @@ public class ConfigurableChoiceProperty extends ConfigurableProperty<String> {
 	    return values;
 	}
 	
+	/**
+	 * Replaces the values to choose from. The current value is kept, the caller selects another one if needed.
+	 * @param values Values
+	 */
+	public void setValues(List<String> values) {
+		this.values = values;
+		idx = values.indexOf(prop.get());
+	}
+	
 	private String getPropValue() {
 		prop.set(values.get(idx));
 		return prop.get();
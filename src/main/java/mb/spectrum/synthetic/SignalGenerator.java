@@ -0,0 +1,137 @@
+package mb.spectrum.synthetic;
+
+import java.util.Random;
+
+/**
+ * Deterministic generator of test signals, filling a block of samples at a time without allocating.
+ */
+public class SignalGenerator {
+	
+	public static enum Signal {
+		SINE, MULTI_TONE, SWEEP, WHITE_NOISE, PINK_NOISE, IMPULSE
+	}
+	
+	private static final double TWO_PI = 2 * Math.PI;
+	
+	// Fixed seed, so that every run produces the same noise
+	private static final long NOISE_SEED = 0;
+	
+	private final Signal signal;
+	private final float samplingRate;
+	private final float amplitude;
+	private final double[] frequencies;
+	private final double[] phases;
+	private final double sweepStart, sweepEnd, sweepSamples;
+	private final long impulseInterval;
+	private final Random random;
+	
+	private long position;
+	private double b0, b1, b2, b3, b4, b5, b6;
+	
+	/**
+	 * @param signal Type of the signal
+	 * @param samplingRate Sampling rate
+	 * @param amplitude Peak amplitude between 0 and 1
+	 * @param frequencies Frequencies of the tones, the first one is used for a sine
+	 * @param sweepStart Start frequency of the sweep
+	 * @param sweepEnd End frequency of the sweep
+	 * @param sweepSeconds Duration of a single sweep, after which it starts over
+	 * @param impulseSeconds Interval between two impulses
+	 */
+	public SignalGenerator(Signal signal, float samplingRate, float amplitude, double[] frequencies, 
+			double sweepStart, double sweepEnd, double sweepSeconds, double impulseSeconds) {
+		this.signal = signal;
+		this.samplingRate = samplingRate;
+		this.amplitude = amplitude;
+		this.frequencies = signal == Signal.SINE ? new double[] { frequencies[0] } : frequencies.clone();
+		this.sweepStart = sweepStart;
+		this.sweepEnd = sweepEnd;
+		phases = new double[this.frequencies.length];
+		sweepSamples = sweepSeconds * samplingRate;
+		impulseInterval = Math.max(1, Math.round(impulseSeconds * samplingRate));
+		random = new Random(NOISE_SEED);
+	}
+	
+	/**
+	 * Generates the next block of the signal.
+	 * @param out Array to be filled
+	 */
+	public void generate(float[] out) {
+		switch (signal) {
+		case SINE:
+		case MULTI_TONE:
+			generateTones(out);
+			break;
+		case SWEEP:
+			generateSweep(out);
+			break;
+		case WHITE_NOISE:
+			for (int i = 0; i < out.length; i++) {
+				out[i] = amplitude * (random.nextFloat() * 2 - 1);
+			}
+			break;
+		case PINK_NOISE:
+			generatePinkNoise(out);
+			break;
+		case IMPULSE:
+			for (int i = 0; i < out.length; i++) {
+				out[i] = (position + i) % impulseInterval == 0 ? amplitude : 0;
+			}
+			break;
+		}
+		position += out.length;
+	}
+	
+	private void generateTones(float[] out) {
+		float gain = amplitude / frequencies.length;
+		for (int i = 0; i < out.length; i++) {
+			out[i] = 0;
+		}
+		for (int t = 0; t < frequencies.length; t++) {
+			double phase = phases[t];
+			double step = TWO_PI * frequencies[t] / samplingRate;
+			for (int i = 0; i < out.length; i++) {
+				out[i] += gain * (float) Math.sin(phase);
+				phase += step;
+			}
+			phases[t] = phase % TWO_PI;
+		}
+	}
+	
+	private void generateSweep(float[] out) {
+		
+		// Exponential sweep, the frequency doubles in equal time steps
+		double ratio = Math.log(sweepEnd / sweepStart);
+		double phase = phases[0];
+		for (int i = 0; i < out.length; i++) {
+			double progress = ((position + i) % (long) sweepSamples) / sweepSamples;
+			double frequency = sweepStart * Math.exp(ratio * progress);
+			out[i] = amplitude * (float) Math.sin(phase);
+			phase += TWO_PI * frequency / samplingRate;
+		}
+		phases[0] = phase % TWO_PI;
+	}
+	
+	private void generatePinkNoise(float[] out) {
+		
+		// Paul Kellet's refined filter, -3dB per octave within 0.05dB above 9.2Hz at 44.1kHz
+		for (int i = 0; i < out.length; i++) {
+			double white = random.nextFloat() * 2 - 1;
+			b0 = 0.99886 * b0 + white * 0.0555179;
+			b1 = 0.99332 * b1 + white * 0.0750759;
+			b2 = 0.96900 * b2 + white * 0.1538520;
+			b3 = 0.86650 * b3 + white * 0.3104856;
+			b4 = 0.55000 * b4 + white * 0.5329522;
+			b5 = -0.7616 * b5 - white * 0.0168980;
+			double pink = b0 + b1 + b2 + b3 + b4 + b5 + b6 + white * 0.5362;
+			b6 = white * 0.115926;
+			
+			// Brings the filter output roughly back to the range of the white noise
+			out[i] = amplitude * (float) (pink * 0.11);
+		}
+	}
+	
+	public Signal getSignal() {
+		return signal;
+	}
+}
@@ -0,0 +1,153 @@
+package mb.spectrum.synthetic;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javafx.stage.Stage;
+import mb.spectrum.AudioListener;
+import mb.spectrum.ConfigService;
+import mb.spectrum.PlatformStrategy;
+import mb.spectrum.analysis.AnalysisEngine;
+import mb.spectrum.audio.AudioDevices;
+import mb.spectrum.audio.AudioStats;
+import mb.spectrum.synthetic.SignalGenerator.Signal;
+
+/**
+ * Strategy generating audio instead of capturing it, so that the views can be run and benchmarked without a sound card.
+ * <p>
+ * Blocks are delivered from a dedicated thread either at real-time pace, or as fast as the listener 
+ * accepts them, which gives the throughput ceiling of the analysis pipeline.
+ */
+public class SyntheticStrategy implements PlatformStrategy {
+	
+	private static final Signal SIGNAL = Signal.valueOf(
+			ConfigService.getInstance().getOrCreateProperty("mb.synthetic.signal", Signal.SINE.name()));
+	private static final float AMPLITUDE = Float.valueOf(
+			ConfigService.getInstance().getOrCreateProperty("mb.synthetic.amplitude", String.valueOf(0.5f)));
+	private static final double[] TONES = Arrays.stream(
+			ConfigService.getInstance().getOrCreateProperty("mb.synthetic.tones", "1000,100,5000").split(","))
+			.mapToDouble(Double::parseDouble).toArray();
+	private static final double SWEEP_START = Double.valueOf(
+			ConfigService.getInstance().getOrCreateProperty("mb.synthetic.sweep-start", String.valueOf(20.0)));
+	private static final double SWEEP_END = Double.valueOf(
+			ConfigService.getInstance().getOrCreateProperty("mb.synthetic.sweep-end", String.valueOf(20000.0)));
+	private static final double SWEEP_SECONDS = Double.valueOf(
+			ConfigService.getInstance().getOrCreateProperty("mb.synthetic.sweep-seconds", String.valueOf(10.0)));
+	private static final double IMPULSE_SECONDS = Double.valueOf(
+			ConfigService.getInstance().getOrCreateProperty("mb.synthetic.impulse-seconds", String.valueOf(0.5)));
+	private static final boolean REAL_TIME = Boolean.valueOf(
+			ConfigService.getInstance().getOrCreateProperty("mb.synthetic.real-time", String.valueOf(true)));
+	
+	private Stage stage;
+	private Thread thread;
+	private volatile boolean running;
+	private volatile AudioListener listener;
+	private AudioStats stats;
+	
+	@Override
+	public void initialize(Stage stage) {
+		this.stage = stage;
+	}
+
+	@Override
+	public Stage getStage() {
+		return stage;
+	}
+
+	@Override
+	public void startAudio(boolean stereo, int bufferSize, int samplingRate, int bitRate) {
+		SignalGenerator generator = new SignalGenerator(SIGNAL, samplingRate, AMPLITUDE, TONES, 
+				SWEEP_START, SWEEP_END, SWEEP_SECONDS, IMPULSE_SECONDS);
+		stats = new AudioStats(bufferSize, samplingRate);
+		float[] left = new float[bufferSize];
+		float[] right = stereo ? new float[bufferSize] : left;
+		
+		running = true;
+		thread = new Thread(() -> {
+			long periodNanos = stats.getBlockPeriodNanos();
+			long deadline = System.nanoTime();
+			while(running) {
+				AudioListener current = listener;
+				if(current == null) {
+					LockSupport.parkNanos(periodNanos);
+					deadline = System.nanoTime();
+					continue;
+				}
+				
+				generator.generate(left);
+				if(right != left) {
+					System.arraycopy(left, 0, right, 0, bufferSize);
+				}
+				
+				long arrival = stats.blockArrived();
+				current.samples(left, right);
+				stats.blockFinished(arrival);
+				
+				// Sleep until the block would have been captured by a real device
+				if(REAL_TIME) {
+					deadline += periodNanos;
+					long remaining;
+					while(running && (remaining = deadline - System.nanoTime()) > 0) {
+						LockSupport.parkNanos(remaining);
+					}
+				}
+			}
+		}, "Synthetic Audio");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MAX_PRIORITY);
+		thread.start();
+	}
+
+	@Override
+	public void startAudio(String audioFilePath, int bufferSize) {
+		
+		// The file is ignored, the signal is generated at the sampling rate the analysis is configured for
+		startAudio(true, bufferSize, AnalysisEngine.getInstance().getSamplingRate(), 16);
+	}
+
+	@Override
+	public void setListener(AudioListener listener) {
+		this.listener = listener;
+	}
+
+	@Override
+	public void stopAudio() {
+		running = false;
+		if(thread != null) {
+			try {
+				thread.join(TimeUnit.SECONDS.toMillis(1));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			thread = null;
+		}
+	}
+
+	@Override
+	public List<String> getInputDevices() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public void setInputDevice(String device) {
+	}
+
+	@Override
+	public List<Integer> getSupportedSamplingRates(boolean stereo, int bitRate) {
+		
+		// Any rate can be generated
+		return AudioDevices.getSamplingRates();
+	}
+
+	@Override
+	public AudioStats getStats() {
+		return stats;
+	}
+
+	@Override
+	public void close() {
+	}
+}
@@ -1,5 +1,7 @@
 package mb.spectrum.view;
 
+import mb.spectrum.analysis.AnalysisFrame;
+
 public abstract class AbstractMixedChannelView extends AbstractView {
 	
 	public AbstractMixedChannelView() {
@@ -10,14 +12,15 @@ public abstract class AbstractMixedChannelView extends AbstractView {
 	}
 
 	@Override
-	public void dataAvailable(float[] left, float[] right) {
-		float[] samples = new float[left.length];
-		for (int i = 0; i < left.length; i++) {
-			samples[i] = ((left[i] + right[i]) / 2.0F);
-		}
-		dataAvailable(samples);
+	public void dataAvailable(AnalysisFrame frame) {
+		dataAvailable(frame.getMono());
 	}
 	
+	/**
+	 * Called with the mono mix of each block. The array is owned by the analysis frame and 
+	 * must not be modified or kept.
+	 * @param data Mono samples
+	 */
 	public abstract void dataAvailable(float[] data);
 	
 	@Override
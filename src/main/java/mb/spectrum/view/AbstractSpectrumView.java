@@ -12,26 +12,24 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import ddf.minim.analysis.FFT;
-import ddf.minim.analysis.FourierTransform;
-import javafx.animation.KeyFrame;
-import javafx.animation.KeyValue;
-import javafx.animation.Timeline;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.SimpleDoubleProperty;
-import javafx.collections.ObservableList;
-import javafx.event.ActionEvent;
-import javafx.event.EventHandler;
 import javafx.scene.Node;
 import javafx.scene.SceneAntialiasing;
 import javafx.scene.SubScene;
 import javafx.scene.control.Label;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Line;
-import javafx.util.Duration;
-import mb.spectrum.ConfigService;
 import mb.spectrum.UiUtils;
-import mb.spectrum.Utils;
+import mb.spectrum.analysis.AnalysisEngine;
+import mb.spectrum.analysis.AnalysisFrame;
+import mb.spectrum.analysis.BandLayout;
+import mb.spectrum.analysis.BandLayout.Scale;
+import mb.spectrum.analysis.BandMapping;
+import mb.spectrum.analysis.ConstantQTransform;
+import mb.spectrum.analysis.SpectrumFeature;
+import mb.spectrum.analysis.SpectrumFeature.Calibration;
+import mb.spectrum.analysis.WindowFunction;
 import mb.spectrum.prop.ConfigurableBooleanProperty;
 import mb.spectrum.prop.ConfigurableChoiceProperty;
 import mb.spectrum.prop.ConfigurableColorProperty;
@@ -40,7 +38,7 @@ import mb.spectrum.prop.ConfigurableIntegerProperty;
 import mb.spectrum.prop.ConfigurableProperty;
 import mb.spectrum.view.AnalogMeterView.Orientation;
 
-public abstract class AbstractSpectrumView extends AbstractMixedChannelView {
+public abstract class AbstractSpectrumView extends AbstractView {
     
     private enum WindowSize {
         SMALL(1), MEDIUM(2), LARGE(4);
@@ -56,19 +54,50 @@ public abstract class AbstractSpectrumView extends AbstractMixedChannelView {
         }
     }
     
+    private enum SpectrumMode {
+        FFT, CONSTANT_Q
+    }
+    
+    private enum WindowOverlap {
+        NONE(1), HALF(2), THREE_QUARTERS(4);
+        
+        // Number of hops per window
+        private int value;
+
+        private WindowOverlap(int value) {
+            this.value = value;
+        }
+        
+        public int getValue() {
+            return value;
+        }
+    }
+    
+    // Band layout matching the original logarithmic averages
+    private static final String DEFAULT_BAND_LAYOUT = "DEFAULT";
+    
+    // Multi-resolution regions, each using a quarter of the window of the region below
+    private static final float[] MULTI_RESOLUTION_CROSSOVERS = { 400, 3200 };
+    private static final int MIN_MULTI_RESOLUTION_WINDOW = 256;
+    
     private static final double GRID_LABELS_MARGIN_RATIO = 0.1;
     private static final double PIP_MARGIN_RATIO = 0.05;
     private static final int LABEL_SIZE_RATIO = 4;
     
-    private static final int SAMPLING_RATE = Integer.valueOf(
-            ConfigService.getInstance().getProperty("mb.sampling-rate"));
-    private static final int BUFFER_SIZE = Integer.valueOf(
-            ConfigService.getInstance().getProperty("mb.buffer-size"));
-    
     /* Configuration properties */
     protected ConfigurableIntegerProperty propMinDbValue;
     private ConfigurableChoiceProperty propWindowSize;
+    private ConfigurableChoiceProperty propWindowOverlap;
+    private ConfigurableChoiceProperty propWindowFunction;
+    private ConfigurableChoiceProperty propCalibration;
+    private ConfigurableChoiceProperty propBandLayout;
+    private ConfigurableChoiceProperty propSpectrumMode;
+    private ConfigurableIntegerProperty propCqBinsPerOctave;
+    private ConfigurableIntegerProperty propCqMinFrequency;
+    private ConfigurableBooleanProperty propMultiResolution;
     private ConfigurableDoubleProperty propSensitivity;
+    private ConfigurableIntegerProperty propAttackTime;
+    private ConfigurableIntegerProperty propReleaseTime;
     private ConfigurableDoubleProperty propTrailStayFactor;
     private ConfigurableDoubleProperty propTrailAccelerationFactor;
     private ConfigurableIntegerProperty propDbLinesCount;
@@ -85,25 +114,29 @@ public abstract class AbstractSpectrumView extends AbstractMixedChannelView {
     
     private List<Line> vLines, hLines;
     private List<Label> vLabels, hLabels;
-    private FFT fft;
+    private SpectrumFeature spectrum;
     private SubScene pip;
     
     protected int bandCount;
-    private double[] bandValuesDB, trailValuesDB;
+    
+    // Latest values from the analysis, the smoothed values shown and the trails
+    private double[] bandValuesDB;
+    protected double[] displayValuesDB, trailValuesDB;
     private double[] trailOpValues;
-    private Timeline mainAnimationTimeline;
-    private int buffFramesCounter;
-    private float[] buffer;
-    private boolean resetting;
+    private long lastFrameNanos;
+    private boolean frameTimed;
+    private boolean shown;
     
     private Map<String, View> subViews;
     
+    // Sub view currently notified as shown, so that it computes the analysis features it needs
+    private View shownPipView;
+    
     public AbstractSpectrumView() {
         super(true);
         createSubViews();
         bandValues = new ArrayList<>();
         trailValues = new ArrayList<>();
-        buffFramesCounter = 0;
         init();
     }
     
@@ -122,7 +155,17 @@ public abstract class AbstractSpectrumView extends AbstractMixedChannelView {
     public List<ConfigurableProperty<? extends Object>> getProperties() {
         return Arrays.asList(propMinDbValue, 
                 propWindowSize,
+                propWindowOverlap,
+                propWindowFunction,
+                propCalibration,
+                propSpectrumMode,
+                propBandLayout,
+                propCqBinsPerOctave,
+                propCqMinFrequency,
+                propMultiResolution,
                 propSensitivity,
+                propAttackTime,
+                propReleaseTime,
                 propTrailStayFactor,
                 propTrailAccelerationFactor,
                 propDbLinesCount,
@@ -147,8 +190,72 @@ public abstract class AbstractSpectrumView extends AbstractMixedChannelView {
                 reset();
             }
         });
+        propWindowOverlap = UiUtils.createConfigurableChoiceProperty(
+                getBasePropertyKey() + ".windowOverlap", "FFT Window Overlap", WindowOverlap.class, WindowOverlap.HALF);
+        propWindowOverlap.getProp().addListener((obs, oldVal, newVal) -> {
+            if(!newVal.equals(oldVal)) {
+                reset();
+            }
+        });
+        propWindowFunction = UiUtils.createConfigurableChoiceProperty(
+                getBasePropertyKey() + ".windowFunction", "FFT Window Function", WindowFunction.class);
+        propWindowFunction.getProp().addListener((obs, oldVal, newVal) -> {
+            if(!newVal.equals(oldVal)) {
+                reset();
+            }
+        });
+        propCalibration = UiUtils.createConfigurableChoiceProperty(
+                getBasePropertyKey() + ".calibration", "Level Calibration", Calibration.class);
+        propCalibration.getProp().addListener((obs, oldVal, newVal) -> {
+            if(!newVal.equals(oldVal)) {
+                reset();
+            }
+        });
+        propSpectrumMode = UiUtils.createConfigurableChoiceProperty(
+                getBasePropertyKey() + ".spectrumMode", "Spectrum Mode", SpectrumMode.class);
+        propSpectrumMode.getProp().addListener((obs, oldVal, newVal) -> {
+            if(!newVal.equals(oldVal)) {
+                reset();
+            }
+        });
+        propCqBinsPerOctave = createConfigurableIntegerProperty(
+                getBasePropertyKey() + ".cqBinsPerOctave", "CQ Bins per Octave", 3, 48, 12, 1);
+        propCqBinsPerOctave.getProp().addListener((obs, oldVal, newVal) -> {
+            if(newVal != oldVal) {
+                reset();
+            }
+        });
+        propCqMinFrequency = createConfigurableIntegerProperty(
+                getBasePropertyKey() + ".cqMinFrequency", "CQ Min. Frequency", 20, 500, 30, 5, "Hz");
+        propCqMinFrequency.getProp().addListener((obs, oldVal, newVal) -> {
+            if(newVal != oldVal) {
+                reset();
+            }
+        });
+        propMultiResolution = createConfigurableBooleanProperty(
+                getBasePropertyKey() + ".multiResolution", "Multi Resolution", false);
+        propMultiResolution.getProp().addListener((obs, oldVal, newVal) -> {
+            if(!newVal.equals(oldVal)) {
+                reset();
+            }
+        });
+        List<String> bandLayouts = new ArrayList<>(Arrays.asList(DEFAULT_BAND_LAYOUT));
+        for (Scale scale : Scale.values()) {
+            bandLayouts.add(scale.name());
+        }
+        propBandLayout = createConfigurableChoiceProperty(
+                getBasePropertyKey() + ".bandLayout", "Band Layout", bandLayouts, DEFAULT_BAND_LAYOUT);
+        propBandLayout.getProp().addListener((obs, oldVal, newVal) -> {
+            if(!newVal.equals(oldVal)) {
+                reset();
+            }
+        });
         propSensitivity = createConfigurableDoubleProperty(
                 getBasePropertyKey() + ".sensitivity", "Sensitivity", 1.0, 5.0, 1.0, 0.1);
+        propAttackTime = createConfigurableIntegerProperty(
+                getBasePropertyKey() + ".attackTime", "Attack Time", 0, 500, 30, 5, "ms");
+        propReleaseTime = createConfigurableIntegerProperty(
+                getBasePropertyKey() + ".releaseTime", "Release Time", 0, 2000, 120, 10, "ms");
         propTrailStayFactor = createConfigurableDoubleProperty(
                 getBasePropertyKey() + ".trailStayFactor", "Trail Stay", 0.001, 0.05, 0.01, 0.001);
         propTrailAccelerationFactor = createConfigurableDoubleProperty(
@@ -169,9 +276,15 @@ public abstract class AbstractSpectrumView extends AbstractMixedChannelView {
         });
         propShowPip = createConfigurableBooleanProperty(
                 getBasePropertyKey() + ".showPip", "Show Pip", true);
+        propShowPip.getProp().addListener((obs, oldVal, newVal) -> {
+            updatePipView();
+        });
         propPipViewType = createConfigurableChoiceProperty(
                 getBasePropertyKey() + ".pipViewType", "PIP View Type", 
                 new ArrayList<>(subViews.keySet()), subViews.keySet().iterator().next());
+        propPipViewType.getProp().addListener((obs, oldVal, newVal) -> {
+            updatePipView();
+        });
         propPipOpacity =  createConfigurableDoubleProperty(
                 getBasePropertyKey() + ".pipOpacity", "PIP Opacity", 0.0, 1.0, 0.8, 0.05);
         propGridColor = UiUtils.createConfigurableColorProperty(
@@ -193,25 +306,40 @@ public abstract class AbstractSpectrumView extends AbstractMixedChannelView {
         vLabels = new ArrayList<>();
         hLabels = new ArrayList<>();
         
-        // Get number of bands
-        fft = new FFT(BUFFER_SIZE * getBufferSizeMultiplier(), SAMPLING_RATE);
-        fft.window(FourierTransform.BLACKMAN);
-        buffer = new float[BUFFER_SIZE * getBufferSizeMultiplier()];
-        
-        // For 44100 the values should be 22, 3
-        // TODO bandsPerOctave should be configurable
-        fft.logAverages(24, getBufferSizeMultiplier() * 4);
+        // Replace the spectrum computed by the analysis engine, FFT plans are shared so only the bands are rebuilt
+        AnalysisEngine engine = AnalysisEngine.getInstance();
+        if(shown) {
+            engine.removeFeature(spectrum);
+        }
+        int windowSize = engine.getBufferSize() * getBufferSizeMultiplier();
+        int samplingRate = engine.getSamplingRate();
+        if(propMultiResolution.getProp().get() && 
+                SpectrumMode.FFT.name().equals(propSpectrumMode.getProp().get())) {
+            spectrum = createMultiResolutionSpectrum(windowSize, samplingRate);
+        } else {
+            spectrum = new SpectrumFeature(windowSize, windowSize / getHopsPerWindow(), 
+                    samplingRate, getWindowFunction(), getCalibration(), createBandMapping(windowSize, samplingRate));
+        }
+        if(shown) {
+            engine.addFeature(spectrum);
+        }
                 
-        bandCount = fft.avgSize();
+        // Get number of bands
+        bandCount = spectrum.getBandCount();
                 
         bandValuesDB = new double[bandCount];
         Arrays.fill(bandValuesDB, propMinDbValue.getProp().get());
+        displayValuesDB = new double[bandCount];
+        Arrays.fill(displayValuesDB, propMinDbValue.getProp().get());
+        bandValues.clear();
         for (int i = 0; i < bandCount; i++) {
             bandValues.add(new SimpleDoubleProperty(propMinDbValue.getProp().get()));
         }
+        frameTimed = false;
                 
         trailValuesDB = new double[bandCount];
         Arrays.fill(trailValuesDB, propMinDbValue.getProp().get());
+        trailValues.clear();
         for (int i = 0; i < bandCount; i++) {
             trailValues.add(new SimpleDoubleProperty(propMinDbValue.getProp().get()));
         }
@@ -223,9 +351,9 @@ public abstract class AbstractSpectrumView extends AbstractMixedChannelView {
             
             // Create grid lines and labels
             if(i % propHzLineOnNthBar.getProp().get() == 0) {
-                createHzLineAndLabel(i, Math.round(fft.getAverageCenterFrequency(i) - fft.getAverageBandWidth(i) / 2));
+                createHzLineAndLabel(i, spectrum.getBandStartFrequency(i));
             } else if(i == bandCount - 1) {
-                createHzLineAndLabel(i + 1, Math.round(fft.getAverageCenterFrequency(i + 1) - fft.getAverageBandWidth(i + 1) / 2));
+                createHzLineAndLabel(i + 1, spectrum.getBandStartFrequency(i + 1));
             }
         }
         
@@ -237,10 +365,7 @@ public abstract class AbstractSpectrumView extends AbstractMixedChannelView {
         /* PIP View */
         
         // Get initial sub view, preventing erroneous configuration property values
-        View view = subViews.get(propPipViewType.getProp().get());
-        if(view == null) {
-            view = subViews.get(subViews.keySet().iterator().next());
-        }
+        View view = getPipView();
         
         // Preserve the sub scene due to issues when resetting the view (the same root has to be added to a new sub scene instance,
         // which results in an exception)
@@ -260,9 +385,6 @@ public abstract class AbstractSpectrumView extends AbstractMixedChannelView {
             pip.opacityProperty().bind(propPipOpacity.getProp());
         }
         
-        // This should happen here, needed when resetting the view
-        startAnimation();
-        
         List<Node> shapes = new ArrayList<>();
         shapes.addAll(vLines);
         shapes.addAll(vLabels);
@@ -274,95 +396,56 @@ public abstract class AbstractSpectrumView extends AbstractMixedChannelView {
     }
     
     @Override
-    public void dataAvailable(float[] data) {
-        if(!resetting) {
+    public void dataAvailable(AnalysisFrame frame) {
         
-            if(buffFramesCounter < getBufferSizeMultiplier()) {
+        // The spectrum is missing until the engine picks up the feature
+        SpectrumFeature.Result result = frame.getResult(spectrum);
+        if(result != null && result.isUpdated()) {
             
-                // Add a frame to the buffer
-                System.arraycopy(data, 0, buffer, BUFFER_SIZE * buffFramesCounter, data.length);
-                buffFramesCounter++;
-            } else {
-        
-                // Perform forward FFT
-                fft.forward(buffer);
-        
-                int minDbValue = propMinDbValue.getProp().get();
-        
-                // Update band values
-                for (int i = 0; i < bandCount; i++) {
-                    double bandDB = Utils.toDB(fft.getAvg(i), fft.timeSize());
-                    bandDB = bandDB < minDbValue ? minDbValue : bandDB;
-                    bandValuesDB[i] = bandDB;
-                
-                    // Reset buffer
-                    buffFramesCounter = 0;
-                }
+            int minDbValue = propMinDbValue.getProp().get();
+            
+            // Update band values
+            float[] values = result.getBandValuesDB();
+            for (int i = 0; i < bandCount; i++) {
+                bandValuesDB[i] = values[i] < minDbValue ? minDbValue : values[i];
             }
         }
-    }
-    
-    private void startAnimation() {
-        
-        // TODO These should be tweaked for maximum performance
-        final int animationTimeMs = 100;
-        final int frameRate = 60;
-        
-        // Make sure the original timer is stopped when the view is reset
-        if(mainAnimationTimeline != null) {
-            mainAnimationTimeline.stop();
-        }
         
-        final int duration = animationTimeMs * getBufferSizeMultiplier();
-
-        KeyFrame frame = new KeyFrame(Duration.millis(duration), new EventHandler<ActionEvent>() {
-            public void handle(ActionEvent event) {
-                
-                // Clear all key frames but the first one
-                ObservableList<KeyFrame> keyFrames = mainAnimationTimeline.getKeyFrames();
-                keyFrames.remove(1, keyFrames.size());
-                
-                // Add a new key frame per band
-                for (int i = 0; i < bandValuesDB.length; i++) {
-                    
-                    KeyValue kv = new KeyValue(bandValues.get(i), bandValuesDB[i]);
-                    KeyFrame kf = new KeyFrame(Duration.millis(duration), kv);
-                    keyFrames.add(kf);
-                }
-                
-                // Restart timeline
-                mainAnimationTimeline.playFromStart();
-            }
-        });
-        
-        mainAnimationTimeline = new Timeline(frameRate, frame);
-        mainAnimationTimeline.play();
-    }
-    
-    @Override
-    public void dataAvailable(float[] left, float[] right) {
-        super.dataAvailable(left, right);
-        
-        // Update the sub view, which is the only purpose this override exists
+        // Update the sub view, which shares the same analysis frame
         View view = subViews.get(propPipViewType.getProp().get());
         if(view.getRoot().isVisible()) {
-            view.dataAvailable(left, right);
+            view.dataAvailable(frame);
         }
     }
 
     @Override
     public void nextFrame() {
         
+        // Smooth towards the latest analysis values by the time elapsed, independently of the frame rate
+        long now = System.nanoTime();
+        double elapsedMs = frameTimed ? (now - lastFrameNanos) / 1e6 : 0;
+        lastFrameNanos = now;
+        frameTimed = true;
+        double attack = getSmoothingFactor(elapsedMs, propAttackTime.getProp().get());
+        double release = getSmoothingFactor(elapsedMs, propReleaseTime.getProp().get());
+        for (int i = 0; i < bandCount; i++) {
+            double target = bandValuesDB[i];
+            double value = displayValuesDB[i];
+            value += (target - value) * (target > value ? attack : release);
+            displayValuesDB[i] = value;
+            bandValues.get(i).set(value);
+        }
+        
         if(propShowTrails.getProp().get()) {
         
             int minDbValue = propMinDbValue.getProp().get();
-            for (int i = 0; i < bandValuesDB.length; i++) {
+            for (int i = 0; i < bandCount; i++) {
             
                 // Trail drop           
                 trailValuesDB[i] = trailValuesDB[i] - trailOpValues[i];
                 trailOpValues[i] = trailOpValues[i] * propTrailAccelerationFactor.getProp().get();
             
-                Double bandValue = bandValues.get(i).getValue();
+                double bandValue = displayValuesDB[i];
                 if(bandValue > trailValuesDB[i]) {
                     trailValuesDB[i] = bandValue;
                     trailOpValues[i] = propTrailStayFactor.getProp().get();
@@ -382,6 +465,14 @@ public abstract class AbstractSpectrumView extends AbstractMixedChannelView {
         }
     }
     
+    /**
+     * @return Fraction of the distance to the target covered in the elapsed time, for an exponential approach 
+     * with the given time constant
+     */
+    private static double getSmoothingFactor(double elapsedMs, int timeMs) {
+        return timeMs <= 0 ? 1 : 1 - Math.exp(-elapsedMs / timeMs);
+    }
+    
     private void createHzLineAndLabel(int barIdx, int hz) {
         
         // Create line
@@ -460,18 +551,93 @@ public abstract class AbstractSpectrumView extends AbstractMixedChannelView {
         return WindowSize.valueOf(propWindowSize.get()).getValue();
     }
     
-    @Override
-    protected void reset() {
-        resetting = true;
-        super.reset();
-        resetting = false;
+    /**
+     * Low bands come from the full window, while each higher region uses a window four times shorter.
+     * All regions update at the hop of the full window.
+     */
+    private SpectrumFeature createMultiResolutionSpectrum(int windowSize, int samplingRate) {
+        List<Integer> sizes = new ArrayList<>(Arrays.asList(windowSize));
+        while(sizes.size() <= MULTI_RESOLUTION_CROSSOVERS.length && 
+                sizes.get(sizes.size() - 1) / 4 >= MIN_MULTI_RESOLUTION_WINDOW) {
+            sizes.add(sizes.get(sizes.size() - 1) / 4);
+        }
+        int[] windowSizes = sizes.stream().mapToInt(Integer::intValue).toArray();
+        return new SpectrumFeature(windowSizes, Arrays.copyOf(MULTI_RESOLUTION_CROSSOVERS, windowSizes.length - 1), 
+                windowSize / getHopsPerWindow(), samplingRate, getWindowFunction(), getCalibration(), 
+                size -> createBandMapping(size, samplingRate));
     }
-
+    
+    private BandMapping createBandMapping(int windowSize, int samplingRate) {
+        if(SpectrumMode.CONSTANT_Q.name().equals(propSpectrumMode.getProp().get())) {
+            return new ConstantQTransform(windowSize, samplingRate, 
+                    propCqMinFrequency.getProp().get(), propCqBinsPerOctave.getProp().get());
+        }
+        
+        String layout = propBandLayout.getProp().get();
+        if(DEFAULT_BAND_LAYOUT.equals(layout)) {
+            
+            // For 44100 the values should be 22, 3
+            return BandLayout.logAverages(windowSize, samplingRate, 24, getBufferSizeMultiplier() * 4);
+        }
+        return BandLayout.create(Scale.valueOf(layout), windowSize, samplingRate);
+    }
+    
+    private WindowFunction getWindowFunction() {
+        return WindowFunction.valueOf(propWindowFunction.get());
+    }
+    
+    private View getPipView() {
+        View view = subViews.get(propPipViewType.getProp().get());
+        if(view == null) {
+            view = subViews.get(subViews.keySet().iterator().next());
+        }
+        return view;
+    }
+    
+    /**
+     * Shows the selected sub view while this view and the PIP are shown, and hides any other.
+     */
+    private void updatePipView() {
+        View view = shown && propShowPip.getProp().get() ? getPipView() : null;
+        if(view != shownPipView) {
+            if(shownPipView != null) {
+                shownPipView.onHide();
+            }
+            if(view != null) {
+                view.onShow();
+            }
+            shownPipView = view;
+        }
+    }
+    
+    private Calibration getCalibration() {
+        return Calibration.valueOf(propCalibration.get());
+    }
+    
+    private int getHopsPerWindow() {
+        return WindowOverlap.valueOf(propWindowOverlap.get()).getValue();
+    }
+    
     @Override
     public void onShow() {
+
+        // Rebuild if the audio was reconfigured while the view was hidden
+        AnalysisEngine engine = AnalysisEngine.getInstance();
+        if(spectrum.getSamplingRate() != engine.getSamplingRate() || 
+                spectrum.getWindowSize() != engine.getBufferSize() * getBufferSizeMultiplier()) {
+            reset();
+        }
+        
+        // The spectrum is computed only while the view is shown
+        shown = true;
+        AnalysisEngine.getInstance().addFeature(spectrum);
+        updatePipView();
     }
 
     @Override
     public void onHide() {
+        shown = false;
+        AnalysisEngine.getInstance().removeFeature(spectrum);
+        updatePipView();
     }
 }
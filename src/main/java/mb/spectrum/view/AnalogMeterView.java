@@ -11,10 +11,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import javafx.animation.KeyFrame;
-import javafx.animation.KeyValue;
-import javafx.animation.Timeline;
-import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.ObjectProperty;
@@ -31,9 +27,9 @@ import javafx.scene.shape.Circle;
 import javafx.scene.shape.Line;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
-import javafx.util.Duration;
 import mb.spectrum.UiUtils;
 import mb.spectrum.Utils;
+import mb.spectrum.analysis.AnalysisFrame;
 import mb.spectrum.prop.ConfigurableBooleanProperty;
 import mb.spectrum.prop.ConfigurableColorProperty;
 import mb.spectrum.prop.ConfigurableDoubleProperty;
@@ -78,7 +74,10 @@ public class AnalogMeterView extends AbstractMixedChannelView {
 		radiusProp, centerXProp, centerYProp, currentLevelRadProp;
 	private ObjectProperty<Color> darkerPeakColorProp;
 	
-	private double currentDbRms, currentDbPeak;
+	// Latest level from the analysis, picked up by the next frame on the same FX thread
+	private double currentDbPeak;
+	private double currentDbRms;
+	private NeedleBallistics needle;
 	private String name, peakLabel, propKeyPrefix;
 	private Orientation orientation;
 	
@@ -201,8 +200,10 @@ public class AnalogMeterView extends AbstractMixedChannelView {
 					return propPeakColor.getProp().get().deriveColor(0.0, 1.0, 0.15, 1.0);
 				}, propPeakColor.getProp()));
 		
-		// This is the indicator animation timeline
-		tl = new Timeline();
+		// The needle starts at rest on the lower stop
+		needle = new NeedleBallistics();
+		needle.reset(propMinDbValue.getProp().get());
+		currentDbPeak = propMinDbValue.getProp().get();
 	}
 
 	@Override
@@ -284,36 +285,40 @@ public class AnalogMeterView extends AbstractMixedChannelView {
 		return nodes;
 	}
 	
-	private Timeline tl;
+	@Override
+	public void dataAvailable(AnalysisFrame frame) {
+		
+		// The peak of the mono mix is already computed by the analysis engine
+		levelAvailable(frame.getMonoLevels().getPeak());
+	}
 	
 	@Override
 	public void dataAvailable(float[] data) {
+		levelAvailable(peakLevel(data));
+	}
+	
+	/**
+	 * Updates the meter with an already computed peak level.
+	 * @param peakLevel Linear peak level
+	 */
+	public void levelAvailable(float peakLevel) {
 		Integer minDbValue = propMinDbValue.getProp().get();
 		
 		// TODO Looks like RMS is not taken into account at all. Is it really needed?
-		currentDbRms = Utils.toDB(peakLevel(data));
+		currentDbRms = Utils.toDB(peakLevel);
 		currentDbRms = currentDbRms < minDbValue ? minDbValue : currentDbRms;
-		currentDbPeak = Utils.toDB(peakLevel(data));
-		currentDbPeak = currentDbPeak < minDbValue ? minDbValue : currentDbPeak;
-		
-		// Update indicator and peak
-		Platform.runLater(new Runnable() {
-			public void run() {
-				tl.stop();
-				tl.getKeyFrames().clear();
-				tl.getKeyFrames().addAll(
-						new KeyFrame(Duration.millis(0), new KeyValue(lingerLevelDbProp, lingerLevelDbProp.get())),
-						new KeyFrame(Duration.millis(propReactionTime.getProp().get()), 
-								new KeyValue(lingerLevelDbProp, currentDbPeak))
-						);
-				tl.play();
-				currentDbPeakProp.set(currentDbPeak);
-			}
-		});
+		double dbPeak = Utils.toDB(peakLevel);
+		currentDbPeak = dbPeak < minDbValue ? minDbValue : dbPeak;
 	}
 
 	@Override
 	public void nextFrame() {
+		
+		// Update indicator and peak from UI thread, with the latest level of the blocks since the previous frame
+		double dbPeak = currentDbPeak;
+		lingerLevelDbProp.set(needle.update(dbPeak, propReactionTime.getProp().get(), 
+				propMinDbValue.getProp().get(), 0));
+		currentDbPeakProp.set(dbPeak);
 	}
 	
 	private void createIndicator(List<Node> nodes) {
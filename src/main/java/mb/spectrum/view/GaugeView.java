@@ -14,18 +14,14 @@ import eu.hansolo.medusa.Gauge.SkinType;
 import eu.hansolo.medusa.GaugeBuilder;
 import eu.hansolo.medusa.TickLabelOrientation;
 import eu.hansolo.medusa.TickMarkType;
-import javafx.animation.KeyFrame;
-import javafx.animation.KeyValue;
-import javafx.animation.Timeline;
-import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
-import javafx.util.Duration;
 import mb.spectrum.UiUtils;
 import mb.spectrum.Utils;
+import mb.spectrum.analysis.AnalysisFrame;
 import mb.spectrum.prop.ConfigurableBooleanProperty;
 import mb.spectrum.prop.ConfigurableChoiceProperty;
 import mb.spectrum.prop.ConfigurableColorProperty;
@@ -47,15 +43,17 @@ public class GaugeView extends AbstractMixedChannelView {
 	private String name, propKeyPrefix;
 	private boolean mirrored;
 	private Gauge gauge;
+	private NeedleBallistics needle;
+	
+	// Latest level from the analysis, picked up by the next frame on the same FX thread
 	private double currentDb;
-	private Timeline tl;
 	
 	public GaugeView(String name, String propKeyPrefix, boolean mirrored) {
 		super(true);
 		this.name = name;
 		this.propKeyPrefix = propKeyPrefix;
 		this.mirrored = mirrored;
-		tl = new Timeline();
+		needle = new NeedleBallistics();
 		init();
 	}
 
@@ -150,26 +148,30 @@ public class GaugeView extends AbstractMixedChannelView {
 	}
 	
 	@Override
-	public void dataAvailable(float[] data) {
-		currentDb = Utils.toDB(peakLevel(data));
+	public void dataAvailable(AnalysisFrame frame) {
 		
-		// Update indicator
-		Platform.runLater(new Runnable() {
-			public void run() {
-				tl.stop();
-				tl.getKeyFrames().clear();
-				tl.getKeyFrames().addAll(
-						new KeyFrame(Duration.millis(0), new KeyValue(gauge.valueProperty(), gauge.valueProperty().get())),
-						new KeyFrame(Duration.millis(propSensitivity.get()), 
-								new KeyValue(gauge.valueProperty(), currentDb))
-						);
-				tl.play();
-			}
-		});
+		// The peak of the mono mix is already computed by the analysis engine
+		levelAvailable(frame.getMonoLevels().getPeak());
+	}
+	
+	@Override
+	public void dataAvailable(float[] data) {
+		levelAvailable(peakLevel(data));
+	}
+	
+	/**
+	 * Updates the gauge with an already computed peak level.
+	 * @param peakLevel Linear peak level
+	 */
+	public void levelAvailable(float peakLevel) {
+		currentDb = Utils.toDB(peakLevel);
 	}
 
 	@Override
 	public void nextFrame() {
+		
+		// Update indicator from UI thread
+		gauge.setValue(needle.update(currentDb, propSensitivity.get(), propMinDbValue.get(), 0));
 	}
 
 	@Override
@@ -287,6 +289,10 @@ public class GaugeView extends AbstractMixedChannelView {
 		// #
 		
         
+		// The needle starts at rest on the lower stop of the new scale
+		needle.reset(propMinDbValue.get());
+		currentDb = propMinDbValue.get();
+		
 		return Arrays.asList(gauge);
 	}
 }
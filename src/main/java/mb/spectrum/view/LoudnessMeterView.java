@@ -0,0 +1,260 @@
+package mb.spectrum.view;
+
+import static mb.spectrum.UiUtils.createConfigurableColorProperty;
+import static mb.spectrum.UiUtils.createConfigurableIntegerProperty;
+import static mb.spectrum.UiUtils.createLabel;
+import static mb.spectrum.Utils.map;
+import static mb.spectrum.Utils.mapBounded;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.Rectangle;
+import mb.spectrum.analysis.AnalysisEngine;
+import mb.spectrum.analysis.AnalysisFrame;
+import mb.spectrum.analysis.LoudnessFeature;
+import mb.spectrum.prop.ActionProperty;
+import mb.spectrum.prop.ConfigurableColorProperty;
+import mb.spectrum.prop.ConfigurableIntegerProperty;
+import mb.spectrum.prop.ConfigurableProperty;
+
+/**
+ * Loudness meter as of ITU-R BS.1770, showing the momentary and short-term loudness as bars against the target
+ * level, along with the integrated loudness and loudness range.
+ */
+public class LoudnessMeterView extends AbstractView {
+	
+	private static final int SCALE_LINES_COUNT = 6;
+	
+	private ConfigurableIntegerProperty propMinLoudness, propTargetLoudness;
+	private ConfigurableColorProperty propGridColor, propBarColor, propOverTargetColor, propTargetColor, propTextColor;
+	private ActionProperty propResetIntegrated;
+	
+	private LoudnessFeature loudness;
+	private List<Line> lines;
+	private List<Label> labels;
+	
+	private double momentary = LoudnessFeature.MIN_LOUDNESS, shortTerm = LoudnessFeature.MIN_LOUDNESS,
+			integrated = LoudnessFeature.MIN_LOUDNESS, range;
+	
+	// Values shown as text in tenths, so that the text is only formatted when it changes
+	private long shownIntegrated = Math.round(LoudnessFeature.MIN_LOUDNESS * 10), shownRange;
+	
+	private DoubleProperty momentaryProp, shortTermProp;
+	private StringProperty valuesProp;
+	
+	@Override
+	public String getName() {
+		return "Loudness Meter";
+	}
+	
+	@Override
+	protected void initProperties() {
+		
+		final String keyPrefix = "loudnessMeterView.";
+		
+		/* Configuration Properties */
+		
+		// Requiring reset
+		propMinLoudness = createConfigurableIntegerProperty(
+				keyPrefix + "minLoudness", "Min. Loudness", -70, -30, -50, 1, "LUFS");
+		propMinLoudness.addUpdateFinishedListener((obs, oldVal, newVal) -> {
+			if(newVal != oldVal) {
+				reset();
+			}
+		});
+		
+		// Not requiring reset
+		propTargetLoudness = createConfigurableIntegerProperty(
+				keyPrefix + "targetLoudness", "Target Loudness", -31, -14, -23, 1, "LUFS");
+		propGridColor = createConfigurableColorProperty(
+				keyPrefix + "gridColor", "Grid Color", Color.web("#fd4a11"));
+		propBarColor = createConfigurableColorProperty(
+				keyPrefix + "barColor", "Bar Color", Color.LAWNGREEN);
+		propOverTargetColor = createConfigurableColorProperty(
+				keyPrefix + "overTargetColor", "Over Target Color", Color.RED);
+		propTargetColor = createConfigurableColorProperty(
+				keyPrefix + "targetColor", "Target Color", Color.WHITE);
+		propTextColor = createConfigurableColorProperty(
+				keyPrefix + "textColor", "Text Color", Color.LIGHTGRAY);
+		propResetIntegrated = new ActionProperty("Reset Integrated");
+		propResetIntegrated.setOnAction((e) -> {
+			if(loudness != null) {
+				loudness.reset();
+			}
+		});
+		
+		/* Operational properties */
+		momentaryProp = new SimpleDoubleProperty(LoudnessFeature.MIN_LOUDNESS);
+		shortTermProp = new SimpleDoubleProperty(LoudnessFeature.MIN_LOUDNESS);
+		valuesProp = new SimpleStringProperty(formatValues(shownIntegrated, shownRange));
+	}
+	
+	@Override
+	public List<ConfigurableProperty<? extends Object>> getProperties() {
+		return Arrays.asList(propTargetLoudness, propMinLoudness, propGridColor, propBarColor,
+				propOverTargetColor, propTargetColor, propTextColor, propResetIntegrated);
+	}
+	
+	@Override
+	protected List<Node> collectNodes() {
+		
+		// Create scale
+		lines = new ArrayList<>();
+		labels = new ArrayList<>();
+		for (int i = 0; i <= SCALE_LINES_COUNT; i++) {
+			createScaleLineAndLabel(i);
+		}
+		
+		// Loudness bars, momentary above short-term
+		Rectangle momentaryBar = createBar(0, momentaryProp);
+		Rectangle shortTermBar = createBar(1, shortTermProp);
+		createBarLabel("M", momentaryBar);
+		createBarLabel("S", shortTermBar);
+		
+		// Target line across both bars
+		Line target = new Line();
+		target.startXProperty().bind(Bindings.createDoubleBinding(
+				() -> toX(propTargetLoudness.getProp().get()),
+				getRoot().widthProperty(), propTargetLoudness.getProp(), propMinLoudness.getProp()));
+		target.endXProperty().bind(target.startXProperty());
+		target.startYProperty().bind(momentaryBar.yProperty());
+		target.endYProperty().bind(shortTermBar.yProperty().add(shortTermBar.heightProperty()));
+		target.strokeProperty().bind(propTargetColor.getProp());
+		target.setStrokeWidth(3);
+		
+		// Integrated loudness and range
+		Label values = createLabel("", labels);
+		values.textProperty().bind(valuesProp);
+		values.textFillProperty().bind(propTextColor.getProp());
+		values.layoutXProperty().bind(getRoot().widthProperty().subtract(values.widthProperty()).divide(2));
+		values.layoutYProperty().bind(getRoot().heightProperty().multiply(0.75).subtract(values.heightProperty().divide(2)));
+		values.styleProperty().bind(Bindings.concat(
+				"-fx-font-size: ", Bindings.createDoubleBinding(
+						() -> getRoot().widthProperty().get() / 30,
+						getRoot().widthProperty())));
+		
+		List<Node> nodes = new ArrayList<>();
+		nodes.addAll(lines);
+		nodes.addAll(labels);
+		nodes.addAll(Arrays.asList(momentaryBar, shortTermBar, target));
+		return nodes;
+	}
+	
+	private void createScaleLineAndLabel(int idx) {
+		int minLoudness = propMinLoudness.getProp().get();
+		double value = map(idx, 0, SCALE_LINES_COUNT, minLoudness, 0);
+		
+		Line line = new Line();
+		line.startXProperty().bind(Bindings.createDoubleBinding(
+				() -> toX(value), getRoot().widthProperty()));
+		line.endXProperty().bind(line.startXProperty());
+		line.startYProperty().bind(getRoot().heightProperty().multiply(SCENE_MARGIN_RATIO * 2));
+		line.endYProperty().bind(getRoot().heightProperty().multiply(0.6));
+		line.strokeProperty().bind(propGridColor.getProp());
+		line.getStrokeDashArray().addAll(2d);
+		line.setCache(true);
+		lines.add(line);
+		
+		Label label = createLabel(Math.round(value) + "", labels);
+		label.layoutXProperty().bind(line.startXProperty().subtract(label.widthProperty().divide(2)));
+		label.layoutYProperty().bind(line.startYProperty().subtract(label.heightProperty()));
+		label.textFillProperty().bind(propGridColor.getProp());
+		label.styleProperty().bind(Bindings.concat(
+				"-fx-font-size: ", Bindings.createDoubleBinding(
+						() -> Math.sqrt(getRoot().widthProperty().get() / 3),
+						getRoot().widthProperty())));
+	}
+	
+	private Rectangle createBar(int idx, DoubleProperty levelProp) {
+		Rectangle bar = new Rectangle();
+		bar.xProperty().bind(Bindings.createDoubleBinding(
+				() -> toX(propMinLoudness.getProp().get()), getRoot().widthProperty()));
+		bar.heightProperty().bind(getRoot().heightProperty().multiply(0.2));
+		bar.yProperty().bind(getRoot().heightProperty().multiply(0.15 + idx * 0.23));
+		bar.widthProperty().bind(Bindings.createDoubleBinding(
+				() -> toX(levelProp.get()) - bar.getX(),
+				levelProp, getRoot().widthProperty(), bar.xProperty()));
+		bar.fillProperty().bind(Bindings.createObjectBinding(
+				() -> levelProp.get() > propTargetLoudness.getProp().get() ? 
+						propOverTargetColor.getProp().get() : propBarColor.getProp().get(),
+				levelProp, propTargetLoudness.getProp(), propOverTargetColor.getProp(), propBarColor.getProp()));
+		return bar;
+	}
+	
+	private void createBarLabel(String text, Rectangle bar) {
+		Label label = createLabel(text, labels);
+		label.layoutXProperty().bind(bar.xProperty().subtract(label.widthProperty()).subtract(5));
+		label.layoutYProperty().bind(bar.yProperty().add(bar.heightProperty().subtract(label.heightProperty()).divide(2)));
+		label.textFillProperty().bind(propTextColor.getProp());
+		label.styleProperty().bind(Bindings.concat(
+				"-fx-font-size: ", Bindings.createDoubleBinding(
+						() -> getRoot().widthProperty().get() / 40,
+						getRoot().widthProperty())));
+	}
+	
+	private double toX(double value) {
+		double width = getRoot().widthProperty().get();
+		return mapBounded(value, propMinLoudness.getProp().get(), 0,
+				width * SCENE_MARGIN_RATIO * 2, width - width * SCENE_MARGIN_RATIO * 2);
+	}
+	
+	/* Handlers */
+	
+	@Override
+	public void dataAvailable(AnalysisFrame frame) {
+		LoudnessFeature.Result result = frame.getResult(loudness);
+		if(result != null) {
+			momentary = result.getMomentary();
+			shortTerm = result.getShortTerm();
+			integrated = result.getIntegrated();
+			range = result.getRange();
+		}
+	}
+	
+	@Override
+	public void nextFrame() {
+		
+		// Update operational properties from UI thread
+		momentaryProp.set(momentary);
+		shortTermProp.set(shortTerm);
+		long integratedTenths = Math.round(integrated * 10), rangeTenths = Math.round(range * 10);
+		if(integratedTenths != shownIntegrated || rangeTenths != shownRange) {
+			shownIntegrated = integratedTenths;
+			shownRange = rangeTenths;
+			valuesProp.set(formatValues(integratedTenths, rangeTenths));
+		}
+	}
+	
+	private static String formatValues(long integratedTenths, long rangeTenths) {
+		return MessageFormat.format("I {0,number,0.0} LUFS    LRA {1,number,0.0} LU",
+				integratedTenths / 10.0, rangeTenths / 10.0);
+	}
+	
+	@Override
+	public void onShow() {
+		
+		// The loudness is measured only while the view is shown, rebuilt if the sampling rate has changed
+		AnalysisEngine engine = AnalysisEngine.getInstance();
+		if(loudness == null || loudness.getSamplingRate() != engine.getSamplingRate()) {
+			loudness = new LoudnessFeature(engine.getSamplingRate());
+		}
+		engine.addFeature(loudness);
+	}
+	
+	@Override
+	public void onHide() {
+		AnalysisEngine.getInstance().removeFeature(loudness);
+	}
+}
@@ -0,0 +1,73 @@
+package mb.spectrum.view;
+
+/**
+ * Needle of an analog meter, moved as a mass on a spring with a damper towards the level, like a moving coil.
+ * <p>
+ * The needle is advanced from the UI thread by the time elapsed since the previous frame, in fixed small steps so
+ * that its motion doesn't depend on the frame rate. The reaction time is the time for the needle to settle within
+ * 2% of a step in level. The damping ratio gives the slight overshoot of a VU meter. The needle rests against the
+ * stops at both ends of the scale.
+ */
+final class NeedleBallistics {
+	
+	private static final double DAMPING_RATIO = 0.8;
+	private static final double MAX_STEP_MS = 4;
+	
+	// Limits the jump after the view was hidden
+	private static final double MAX_ELAPSED_MS = 100;
+	
+	private double position, velocity;
+	private long lastNanos;
+	private boolean timed;
+	
+	/**
+	 * Moves the needle to the given position at rest.
+	 * @param position Position
+	 */
+	void reset(double position) {
+		this.position = position;
+		velocity = 0;
+		timed = false;
+	}
+	
+	/**
+	 * Advances the needle to the current time.
+	 * @param target Level pulling the needle
+	 * @param reactionTimeMs Settling time in ms
+	 * @param min Lower stop
+	 * @param max Upper stop
+	 * @return New position
+	 */
+	double update(double target, double reactionTimeMs, double min, double max) {
+		long now = System.nanoTime();
+		double elapsedMs = timed ? Math.min(MAX_ELAPSED_MS, (now - lastNanos) / 1e6) : 0;
+		lastNanos = now;
+		timed = true;
+		target = Math.max(min, Math.min(max, target));
+		if(reactionTimeMs <= 0) {
+			position = target;
+			velocity = 0;
+			return position;
+		}
+		
+		// Natural frequency in radians per ms, settling within 2% after 4 time constants
+		double omega = 4 / (DAMPING_RATIO * reactionTimeMs);
+		int steps = (int) Math.ceil(elapsedMs / MAX_STEP_MS);
+		double dt = steps == 0 ? 0 : elapsedMs / steps;
+		for (int i = 0; i < steps; i++) {
+			
+			// Semi-implicit Euler, stable as omega * dt stays well below 1
+			double acceleration = omega * omega * (target - position) - 2 * DAMPING_RATIO * omega * velocity;
+			velocity += acceleration * dt;
+			position += velocity * dt;
+			if(position < min) {
+				position = min;
+				velocity = 0;
+			} else if(position > max) {
+				position = max;
+				velocity = 0;
+			}
+		}
+		return position;
+	}
+}
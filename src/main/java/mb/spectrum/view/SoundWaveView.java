@@ -8,6 +8,7 @@ import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import mb.spectrum.UiUtils;
+import mb.spectrum.analysis.AnalysisFrame;
 import mb.spectrum.prop.ConfigurableColorProperty;
 import mb.spectrum.prop.ConfigurableProperty;
 
@@ -65,9 +66,15 @@ public class SoundWaveView extends AbstractView {
 	}
 	
 	@Override
-	public void dataAvailable(float[] left, float[] right) {
-		System.arraycopy(left, 0, bufferL, 0, right.length);
-		System.arraycopy(right, 0, bufferR, 0, right.length);
+	public void dataAvailable(AnalysisFrame frame) {
+		
+		// The block size may change when the audio is reconfigured
+		if(frame.size() != bufferL.length) {
+			bufferL = new float[frame.size()];
+			bufferR = new float[frame.size()];
+		}
+		System.arraycopy(frame.getLeft(), 0, bufferL, 0, frame.size());
+		System.arraycopy(frame.getRight(), 0, bufferR, 0, frame.size());
 	}
 
 	@Override
@@ -7,20 +7,39 @@ import java.util.List;
 
 import javafx.beans.binding.Bindings;
 import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.LineTo;
 import javafx.scene.shape.MoveTo;
 import javafx.scene.shape.Path;
 import mb.spectrum.UiUtils;
+import mb.spectrum.prop.ConfigurableBooleanProperty;
+import mb.spectrum.prop.ConfigurableChoiceProperty;
 import mb.spectrum.prop.ConfigurableProperty;
+import mb.spectrum.view.SpectrumBarView.Renderer;
 
 public class SpectrumAreaView extends AbstractSpectrumView {
 	
+	// Points of the smoothed curve per band
+	private static final int SMOOTHING_SUBDIVISIONS = 4;
+	
+	// Catmull-Rom weights of the four surrounding bands for each point between two bands
+	private static final double[][] SMOOTHING_WEIGHTS = createSmoothingWeights();
+	
 	private ConfigurableProperty<Color> propAreaColor;
 	private ConfigurableProperty<Color> propAreaStrokeColor;
 	private ConfigurableProperty<Color> propTrailColor;
+	private ConfigurableChoiceProperty propRenderer;
+	private ConfigurableBooleanProperty propSmoothing;
 	
 	private Path curvePath, trailPath;
+	
+	// Canvas renderer, the x positions only recomputed on resize or when the smoothing changes
+	private Canvas canvas;
+	private double[] pointX, areaY, trailY;
+	private int pointCount;
+	private double baseline;
 
 	@Override
 	public String getName() {
@@ -41,6 +60,29 @@ public class SpectrumAreaView extends AbstractSpectrumView {
 				getBasePropertyKey() + ".areaStrokeColor", "Spectrum Area Stroke Color", Color.LAWNGREEN);
 		propTrailColor = UiUtils.createConfigurableColorProperty(
 				getBasePropertyKey() + ".areaTrailColor", "Spectrum Trail Color", Color.DARKGREEN);
+		propRenderer = UiUtils.createConfigurableChoiceProperty(
+				getBasePropertyKey() + ".renderer", "Renderer", Renderer.class);
+		propRenderer.getProp().addListener((obs, oldVal, newVal) -> {
+			if(!newVal.equals(oldVal)) {
+				reset();
+			}
+		});
+		propSmoothing = UiUtils.createConfigurableBooleanProperty(
+				getBasePropertyKey() + ".smoothing", "Smooth Curve", false);
+		propSmoothing.getProp().addListener((obs, oldVal, newVal) -> updateCanvasLayout());
+	}
+	
+	private static double[][] createSmoothingWeights() {
+		double[][] weights = new double[SMOOTHING_SUBDIVISIONS][];
+		for (int s = 0; s < SMOOTHING_SUBDIVISIONS; s++) {
+			double t = (double) s / SMOOTHING_SUBDIVISIONS, t2 = t * t, t3 = t2 * t;
+			weights[s] = new double[] {
+					0.5 * (-t + 2 * t2 - t3),
+					0.5 * (2 - 5 * t2 + 3 * t3),
+					0.5 * (t + 4 * t2 - 3 * t3),
+					0.5 * (-t2 + t3) };
+		}
+		return weights;
 	}
 	
 	@Override
@@ -50,12 +92,23 @@ public class SpectrumAreaView extends AbstractSpectrumView {
 		props.add(propAreaColor);
 		props.add(propAreaStrokeColor);
 		props.add(propTrailColor);
+		props.add(propRenderer);
+		props.add(propSmoothing);
 		return props;
 	}
 
 	@Override
 	protected List<Node> collectNodes() {
 		List<Node> parentShapes = super.collectNodes();
+		ArrayList<Node> shapes = new ArrayList<>(parentShapes);
+		if(isCanvasRenderer()) {
+			if(canvas == null) {
+				createCanvas();
+			}
+			updateCanvasLayout();
+			shapes.add(canvas);
+			return shapes;
+		}
 		
 		// Area
 		curvePath = new Path();
@@ -85,12 +138,119 @@ public class SpectrumAreaView extends AbstractSpectrumView {
             createLastLine(trailPath);
         }
 		
-		ArrayList<Node> shapes = new ArrayList<>(parentShapes);
 		shapes.add(curvePath);
 		shapes.add(trailPath);
 		return shapes;
 	}
 	
+	private boolean isCanvasRenderer() {
+		return Renderer.CANVAS.name().equals(propRenderer.get());
+	}
+	
+	/**
+	 * Creates the canvas once, kept across resets like the PIP sub scene.
+	 */
+	private void createCanvas() {
+		canvas = new Canvas();
+		canvas.widthProperty().bind(getRoot().widthProperty());
+		canvas.heightProperty().bind(getRoot().heightProperty());
+		canvas.widthProperty().addListener((obs, oldVal, newVal) -> updateCanvasLayout());
+		canvas.heightProperty().addListener((obs, oldVal, newVal) -> updateCanvasLayout());
+		canvas.setMouseTransparent(true);
+	}
+	
+	/**
+	 * Computes the x positions of the polyline, the band centers or the points of the smoothed curve between them, 
+	 * starting and ending at the bottom corners the same as the paths.
+	 */
+	private void updateCanvasLayout() {
+		if(canvas == null) {
+			return;
+		}
+		double width = canvas.getWidth();
+		double height = canvas.getHeight();
+		double bandWidth = (width - width * SCENE_MARGIN_RATIO * 2) / bandCount;
+		int subdivisions = propSmoothing.getProp().get() ? SMOOTHING_SUBDIVISIONS : 1;
+		int curvePoints = (bandCount - 1) * subdivisions + 1;
+		pointCount = curvePoints + 2;
+		if(pointX == null || pointX.length != pointCount) {
+			pointX = new double[pointCount];
+			areaY = new double[pointCount];
+			trailY = new double[pointCount];
+		}
+		pointX[0] = width * SCENE_MARGIN_RATIO;
+		for (int i = 0; i < curvePoints; i++) {
+			pointX[i + 1] = width * SCENE_MARGIN_RATIO + bandWidth / 2 + i * bandWidth / subdivisions;
+		}
+		pointX[pointCount - 1] = width - width * SCENE_MARGIN_RATIO;
+		baseline = height - height * SCENE_MARGIN_RATIO;
+		areaY[0] = areaY[pointCount - 1] = trailY[0] = trailY[pointCount - 1] = baseline;
+	}
+	
+	@Override
+	public void nextFrame() {
+		super.nextFrame();
+		if(isCanvasRenderer()) {
+			drawCanvas();
+		}
+	}
+	
+	private void drawCanvas() {
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+		
+		// Area, filled down to the baseline and stroked as an open outline up from and back down to it, like the path
+		computeCurve(displayValuesDB, areaY);
+		gc.setFill(propAreaColor.getProp().get());
+		gc.fillPolygon(pointX, areaY, pointCount);
+		gc.setStroke(propAreaStrokeColor.getProp().get());
+		gc.setLineWidth(1);
+		gc.strokePolyline(pointX, areaY, pointCount);
+		
+		// Trail
+		if(propShowTrails.getProp().get()) {
+			computeCurve(trailValuesDB, trailY);
+			gc.setStroke(propTrailColor.getProp().get());
+			gc.setLineWidth(2);
+			gc.strokePolyline(pointX, trailY, pointCount);
+		}
+	}
+	
+	/**
+	 * Maps the band values to y in a single pass, interpolating the smoothed curve between them if enabled.
+	 * @param valuesDB Band values
+	 * @param y Receives the y positions of the curve, after the starting corner
+	 */
+	private void computeCurve(double[] valuesDB, double[] y) {
+		int minDbValue = propMinDbValue.getProp().get();
+		int subdivisions = (pointCount - 3) / Math.max(1, bandCount - 1);
+		if(subdivisions <= 1) {
+			for (int i = 0; i < bandCount; i++) {
+				y[i + 1] = map(valuesDB[i], minDbValue, 0, baseline, 0);
+			}
+			return;
+		}
+		
+		// The four bands around the current segment, the outer ones repeated at both ends
+		double y0 = map(valuesDB[0], minDbValue, 0, baseline, 0);
+		double y1 = y0;
+		double y2 = map(valuesDB[Math.min(1, bandCount - 1)], minDbValue, 0, baseline, 0);
+		for (int i = 0; i < bandCount - 1; i++) {
+			double y3 = map(valuesDB[Math.min(i + 2, bandCount - 1)], minDbValue, 0, baseline, 0);
+			for (int s = 0; s < subdivisions; s++) {
+				double[] w = SMOOTHING_WEIGHTS[s];
+				double value = w[0] * y0 + w[1] * y1 + w[2] * y2 + w[3] * y3;
+				
+				// The curve may overshoot below the baseline between bands
+				y[1 + i * subdivisions + s] = value > baseline ? baseline : value;
+			}
+			y0 = y1;
+			y1 = y2;
+			y2 = y3;
+		}
+		y[pointCount - 2] = y1;
+	}
+	
 	private void createStartingPoint(Path path) {
 		MoveTo moveTo = new MoveTo();
 		moveTo.xProperty().bind(getRoot().widthProperty().multiply(SCENE_MARGIN_RATIO));
@@ -8,21 +8,42 @@ import java.util.List;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.ReadOnlyDoubleProperty;
 import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
+import javafx.scene.paint.CycleMethod;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.paint.Paint;
+import javafx.scene.paint.Stop;
 import javafx.scene.shape.Line;
 import javafx.scene.shape.Rectangle;
 import mb.spectrum.UiUtils;
+import mb.spectrum.prop.ConfigurableChoiceProperty;
 import mb.spectrum.prop.ConfigurableProperty;
 
 public class SpectrumBarView extends AbstractSpectrumView {
 	
+	/**
+	 * Canvas draws all bars and trails each frame, shapes keep a node with bindings per bar and trail.
+	 */
+	public static enum Renderer {
+		CANVAS, SHAPES
+	}
+	
 	private ConfigurableProperty<Color> propBarColor1;
 	private ConfigurableProperty<Color> propBarColor2;
 	private ConfigurableProperty<Color> propTrailColor;
 	private ConfigurableProperty<Double> propGapBarRatio;
+	private ConfigurableChoiceProperty propRenderer;
 	
 	private List<Rectangle> bars;
 	private List<Line> trails;
+	
+	// Canvas renderer, its layout only recomputed on resize or when the bar properties change
+	private Canvas canvas;
+	private double[] barX;
+	private double barWidth, barBottom;
+	private Paint barPaint;
 
 	@Override
 	public String getName() {
@@ -45,6 +66,17 @@ public class SpectrumBarView extends AbstractSpectrumView {
 				getBasePropertyKey() + ".trailColor", "Trail Color", Color.LAWNGREEN);
 		propGapBarRatio = UiUtils.createConfigurableDoubleProperty(
 				getBasePropertyKey() + ".gapBarRatio", "Gap/Bar Ratio", 0.01, 0.9, 0.01, 0.01);
+		propRenderer = UiUtils.createConfigurableChoiceProperty(
+				getBasePropertyKey() + ".renderer", "Renderer", Renderer.class);
+		propRenderer.getProp().addListener((obs, oldVal, newVal) -> {
+			if(!newVal.equals(oldVal)) {
+				reset();
+			}
+		});
+		
+		propGapBarRatio.getProp().addListener((obs, oldVal, newVal) -> updateCanvasLayout());
+		propBarColor1.getProp().addListener((obs, oldVal, newVal) -> updateCanvasLayout());
+		propBarColor2.getProp().addListener((obs, oldVal, newVal) -> updateCanvasLayout());
 	}
 	
 	@Override
@@ -55,12 +87,22 @@ public class SpectrumBarView extends AbstractSpectrumView {
 		props.add(propBarColor2);
 		props.add(propTrailColor);
 		props.add(propGapBarRatio);
+		props.add(propRenderer);
 		return props;
 	}
 
 	@Override
 	protected List<Node> collectNodes() {
 		List<Node> parentShapes = super.collectNodes();
+		ArrayList<Node> shapes = new ArrayList<>(parentShapes);
+		if(isCanvasRenderer()) {
+			if(canvas == null) {
+				createCanvas();
+			}
+			updateCanvasLayout();
+			shapes.add(canvas);
+			return shapes;
+		}
 		
 		// Bars
 		bars = new ArrayList<>();
@@ -76,12 +118,84 @@ public class SpectrumBarView extends AbstractSpectrumView {
 		    }
 		}
 		
-		ArrayList<Node> shapes = new ArrayList<>(parentShapes);
 		shapes.addAll(bars);
 		shapes.addAll(trails);
 		return shapes;
 	}
 	
+	private boolean isCanvasRenderer() {
+		return Renderer.CANVAS.name().equals(propRenderer.get());
+	}
+	
+	/**
+	 * Creates the canvas once, kept across resets like the PIP sub scene.
+	 */
+	private void createCanvas() {
+		canvas = new Canvas();
+		canvas.widthProperty().bind(getRoot().widthProperty());
+		canvas.heightProperty().bind(getRoot().heightProperty());
+		canvas.widthProperty().addListener((obs, oldVal, newVal) -> updateCanvasLayout());
+		canvas.heightProperty().addListener((obs, oldVal, newVal) -> updateCanvasLayout());
+		canvas.setMouseTransparent(true);
+	}
+	
+	/**
+	 * Computes the bar positions and the gradient, the same as the bindings of the shapes.
+	 */
+	private void updateCanvasLayout() {
+		if(canvas == null) {
+			return;
+		}
+		double width = canvas.getWidth();
+		double height = canvas.getHeight();
+		double bandWidth = (width - width * SCENE_MARGIN_RATIO * 2) / bandCount;
+		double gap = bandWidth * propGapBarRatio.getProp().get();
+		if(barX == null || barX.length != bandCount) {
+			barX = new double[bandCount];
+		}
+		for (int i = 0; i < bandCount; i++) {
+			barX[i] = width * SCENE_MARGIN_RATIO + i * bandWidth + gap / 2;
+		}
+		barWidth = bandWidth - gap;
+		barBottom = height - height * SCENE_MARGIN_RATIO;
+		barPaint = new LinearGradient(0, height * SCENE_MARGIN_RATIO, 0, barBottom, false, CycleMethod.NO_CYCLE, 
+				new Stop(0.5, propBarColor2.getProp().get()), new Stop(1, propBarColor1.getProp().get()));
+	}
+	
+	@Override
+	public void nextFrame() {
+		super.nextFrame();
+		if(isCanvasRenderer()) {
+			drawCanvas();
+		}
+	}
+	
+	private void drawCanvas() {
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+		int minDbValue = propMinDbValue.getProp().get();
+		
+		// Bars
+		gc.setFill(barPaint);
+		for (int i = 0; i < bandCount; i++) {
+			double y = map(displayValuesDB[i], minDbValue, 0, barBottom, 0);
+			gc.fillRect(barX[i], y, barWidth, barBottom - y);
+		}
+		
+		// Trails, hidden at the bottom
+		if(propShowTrails.getProp().get()) {
+			gc.setStroke(propTrailColor.getProp().get());
+			gc.setLineWidth(2);
+			for (int i = 0; i < bandCount; i++) {
+				double value = trailValuesDB[i];
+				if(value > minDbValue) {
+					double y = map(value, minDbValue, 0, barBottom, 0);
+					gc.strokeLine(barX[i], y, barX[i] + barWidth, y);
+				}
+			}
+		}
+	}
+	
 	private void createBar(int idx) {
 		Rectangle rect = new Rectangle();
 		rect.xProperty().bind(Bindings.createDoubleBinding(
@@ -11,6 +11,7 @@ import javafx.scene.Node;
 import javafx.scene.SceneAntialiasing;
 import javafx.scene.SubScene;
 import mb.spectrum.UiUtils;
+import mb.spectrum.analysis.AnalysisFrame;
 import mb.spectrum.prop.ConfigurableDoubleProperty;
 import mb.spectrum.prop.ConfigurableProperty;
 import mb.spectrum.view.AnalogMeterView.Orientation;
@@ -54,9 +55,9 @@ public class StereoAnalogMetersView extends AbstractView {
 	}
 
 	@Override
-	public void dataAvailable(float[] left, float[] right) {
-		leftMeterView.dataAvailable(left);
-		rightMeterView.dataAvailable(right);
+	public void dataAvailable(AnalysisFrame frame) {
+		leftMeterView.levelAvailable(frame.getLeftLevels().getPeak());
+		rightMeterView.levelAvailable(frame.getRightLevels().getPeak());
 	}
 
 	@Override
@@ -6,6 +6,7 @@ import java.util.List;
 import javafx.beans.property.ObjectProperty;
 import javafx.scene.Node;
 import javafx.scene.layout.Pane;
+import mb.spectrum.analysis.AnalysisFrame;
 import mb.spectrum.prop.ConfigurableProperty;
 
 public class StereoGaugeView extends AbstractView {
@@ -40,13 +41,15 @@ public class StereoGaugeView extends AbstractView {
 	}
 
 	@Override
-	public void dataAvailable(float[] left, float[] right) {
-		leftView.dataAvailable(left);
-		rightView.dataAvailable(right);
+	public void dataAvailable(AnalysisFrame frame) {
+		leftView.levelAvailable(frame.getLeftLevels().getPeak());
+		rightView.levelAvailable(frame.getRightLevels().getPeak());
 	}
 
 	@Override
 	public void nextFrame() {
+		leftView.nextFrame();
+		rightView.nextFrame();
 	}
 
 	@Override
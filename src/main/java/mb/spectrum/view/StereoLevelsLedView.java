@@ -1,11 +1,9 @@
 package mb.spectrum.view;
 
-import static mb.spectrum.UiUtils.createConfigurableBooleanProperty;
+import static mb.spectrum.UiUtils.createConfigurableChoiceProperty;
 import static mb.spectrum.UiUtils.createConfigurableColorProperty;
 import static mb.spectrum.UiUtils.createConfigurableDoubleProperty;
 import static mb.spectrum.UiUtils.createConfigurableIntegerProperty;
-import static mb.spectrum.Utils.peakLevel;
-import static mb.spectrum.Utils.rmsLevel;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -15,16 +13,25 @@ import javafx.beans.binding.Bindings;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.Label;
+import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
 import mb.spectrum.Utils;
-import mb.spectrum.prop.ConfigurableBooleanProperty;
+import mb.spectrum.analysis.AnalysisEngine;
+import mb.spectrum.analysis.AnalysisFrame;
+import mb.spectrum.analysis.TruePeakFeature;
+import mb.spectrum.prop.ConfigurableChoiceProperty;
 import mb.spectrum.prop.ConfigurableColorProperty;
 import mb.spectrum.prop.ConfigurableDoubleProperty;
 import mb.spectrum.prop.ConfigurableIntegerProperty;
 import mb.spectrum.prop.ConfigurableProperty;
+import mb.spectrum.view.SpectrumBarView.Renderer;
+import mb.spectrum.view.StereoLevelsView.LevelMode;
 
 public class StereoLevelsLedView extends AbstractView {
 	
@@ -39,6 +46,7 @@ public class StereoLevelsLedView extends AbstractView {
 	
 	// Requiring reset
 	private ConfigurableProperty<Integer> propLedCount;
+	private ConfigurableChoiceProperty propRenderer;
 	
 	// Not requiring reset
 	private ConfigurableIntegerProperty propMinDbValue;
@@ -51,12 +59,28 @@ public class StereoLevelsLedView extends AbstractView {
 	private ConfigurableDoubleProperty propVGapLedRatio;
 	private ConfigurableDoubleProperty propArcWidthWeight;
 	private ConfigurableDoubleProperty propArcHeightWeight;
-	private ConfigurableBooleanProperty propRms;
+	private ConfigurableChoiceProperty propLevelMode;
 	
 	/* Operational Properties */
 	private DoubleProperty currentDbLProp, currentDbRProp;
 	
 	private double currentDbL, currentDbR;
+	
+	// Canvas renderer, the LED sprites and positions only recomputed on resize or when the LED properties change
+	private Canvas canvas;
+	private Image offSprite;
+	private Image[] onSprites;
+	private byte[] ledZones;
+	private double[] ledX, ledY;
+	private double spriteWidth, spriteHeight;
+	
+	// Number of LEDs drawn lit per channel, so that only the LEDs changing state are drawn
+	private int[] litCounts;
+	private boolean redrawAll;
+	
+	// Computed only in true peak mode while the view is shown
+	private final TruePeakFeature truePeak = new TruePeakFeature();
+	private boolean shown;
 
 	@Override
 	public String getName() {
@@ -78,6 +102,13 @@ public class StereoLevelsLedView extends AbstractView {
 				reset();
 			}
 		});
+		propRenderer = createConfigurableChoiceProperty(
+				keyPrefix + "renderer", "Renderer", Renderer.class);
+		propRenderer.getProp().addListener((obs, oldVal, newVal) -> {
+			if(!newVal.equals(oldVal)) {
+				reset();
+			}
+		});
 		
 		// Not requiring reset
 		propMinDbValue = createConfigurableIntegerProperty(
@@ -100,8 +131,20 @@ public class StereoLevelsLedView extends AbstractView {
 				keyPrefix + "arcWidthWeight", "Arc Width Weight", 0.0, 1.0, 0.1, 0.05);
 		propArcHeightWeight = createConfigurableDoubleProperty(
 				keyPrefix + "arcHeightWeight", "Arc Height Weight", 0.0, 1.0, 0.1, 0.05);
-		propRms = createConfigurableBooleanProperty(
-				keyPrefix + "enableRmsMode", "RMS Mode", false);
+		
+		// Seeded from the former RMS mode switch when not configured yet
+		propLevelMode = createConfigurableChoiceProperty(
+				keyPrefix + "levelMode", "Level Mode", Arrays.asList(
+						LevelMode.PEAK.name(), LevelMode.RMS.name(), LevelMode.TRUE_PEAK.name()), 
+				StereoLevelsView.getInitialLevelMode(keyPrefix).name());
+		propLevelMode.getProp().addListener((obs, oldVal, newVal) -> {
+			updateFeature();
+		});
+		for (ConfigurableProperty<?> prop : Arrays.<ConfigurableProperty<?>>asList(propMinDbValue, propClipDbValue, 
+				propMidDbValue, propLedColorNormal, propLedColorMid, propLedColorClip, propHGapLedRatio, 
+				propVGapLedRatio, propArcWidthWeight, propArcHeightWeight)) {
+			prop.addListener((obs, oldVal, newVal) -> updateCanvasLayout());
+		}
 		
 		/* Operational properties */
 		currentDbLProp = new SimpleDoubleProperty(propMinDbValue.getProp().get());
@@ -121,19 +164,31 @@ public class StereoLevelsLedView extends AbstractView {
 				propVGapLedRatio, 
 				propArcHeightWeight, 
 				propArcWidthWeight, 
-				propRms);
+				propLevelMode,
+				propRenderer);
 	}
 	
 	@Override
-	public void dataAvailable(float[] left, float[] right) {
+	public void dataAvailable(AnalysisFrame frame) {
 		
 		float levelLeft = 0, levelRight = 0;
-		if(propRms.getProp().get()) {
-			levelLeft = rmsLevel(left);
-			levelRight = rmsLevel(right);
-		} else {
-			levelLeft = peakLevel(left);
-			levelRight = peakLevel(right);
+		switch (LevelMode.valueOf(propLevelMode.get())) {
+		case RMS:
+			levelLeft = frame.getLeftLevels().getRms();
+			levelRight = frame.getRightLevels().getRms();
+			break;
+		case TRUE_PEAK:
+			TruePeakFeature.Result result = frame.getResult(truePeak);
+			if(result == null) {
+				return;
+			}
+			levelLeft = result.getLeft();
+			levelRight = result.getRight();
+			break;
+		default:
+			levelLeft = frame.getLeftLevels().getPeak();
+			levelRight = frame.getRightLevels().getPeak();
+			break;
 		}
 		
 		currentDbL = Utils.toDB(levelLeft);
@@ -146,6 +201,9 @@ public class StereoLevelsLedView extends AbstractView {
 		// Update operational properties from UI thread
 		currentDbLProp.set(currentDbL);
 		currentDbRProp.set(currentDbR);
+		if(isCanvasRenderer()) {
+			drawCanvas();
+		}
 	}
 	
 	@Override
@@ -154,6 +212,14 @@ public class StereoLevelsLedView extends AbstractView {
 		List<Node> nodes = new ArrayList<>();
 		nodes.add(createLabel(Channel.LEFT));
 		nodes.add(createLabel(Channel.RIGHT));
+		if(isCanvasRenderer()) {
+			if(canvas == null) {
+				createCanvas();
+			}
+			updateCanvasLayout();
+			nodes.add(canvas);
+			return nodes;
+		}
 		
 		for (int i = 0; i < propLedCount.getProp().get(); i++) {
 			nodes.add(createLed(Channel.LEFT, i));
@@ -162,6 +228,127 @@ public class StereoLevelsLedView extends AbstractView {
 		return nodes;
 	}
 	
+	private boolean isCanvasRenderer() {
+		return Renderer.CANVAS.name().equals(propRenderer.get());
+	}
+	
+	/**
+	 * Creates the canvas once, kept across resets.
+	 */
+	private void createCanvas() {
+		canvas = new Canvas();
+		canvas.widthProperty().bind(getRoot().widthProperty());
+		canvas.heightProperty().bind(getRoot().heightProperty());
+		canvas.widthProperty().addListener((obs, oldVal, newVal) -> updateCanvasLayout());
+		canvas.heightProperty().addListener((obs, oldVal, newVal) -> updateCanvasLayout());
+		canvas.setMouseTransparent(true);
+	}
+	
+	/**
+	 * Computes the LED positions the same as the bindings of the shapes and renders a sprite per color zone,
+	 * then has all LEDs drawn on the next frame.
+	 */
+	private void updateCanvasLayout() {
+		if(canvas == null) {
+			return;
+		}
+		double width = canvas.getWidth();
+		double height = canvas.getHeight();
+		int ledCount = propLedCount.getProp().get();
+		
+		double labelAreaWidth = width * LABEL_WIDTH_RATIO;
+		double ledAreaWidth = width - labelAreaWidth * 2;
+		double hGap = (ledAreaWidth / ledCount) * propHGapLedRatio.getProp().get();
+		double ledWidth = ledAreaWidth / ledCount - hGap - hGap / ledCount;
+		double vGap = (height / 2) * propVGapLedRatio.getProp().get();
+		double ledHeight = height / 2 - vGap - vGap / 2;
+		
+		// Snapped to whole pixels so that the sprites are copied without resampling, narrower than the LED 
+		// spacing so that drawing an LED never touches its neighbours
+		spriteWidth = Math.max(1, Math.floor(ledWidth));
+		spriteHeight = Math.max(1, Math.floor(ledHeight));
+		if(ledX == null || ledX.length != ledCount) {
+			ledX = new double[ledCount];
+			ledZones = new byte[ledCount];
+		}
+		for (int col = 0; col < ledCount; col++) {
+			ledX[col] = Math.round(labelAreaWidth + hGap + col * (hGap + ledWidth));
+			
+			// Color zone by the level at which the LED lights
+			double threshold = getLedThreshold(col, ledCount);
+			ledZones[col] = (byte) (threshold > propClipDbValue.getProp().get() ? 2 : 
+				threshold > propMidDbValue.getProp().get() ? 1 : 0);
+		}
+		ledY = new double[] { Math.round(vGap), Math.round(vGap + vGap + ledHeight) };
+		
+		if(width > 0 && height > 0) {
+			double arcWidth = spriteWidth * propArcWidthWeight.getProp().get();
+			double arcHeight = spriteHeight * propArcHeightWeight.getProp().get();
+			onSprites = new Image[] {
+					createSprite(propLedColorNormal.getProp().get(), arcWidth, arcHeight),
+					createSprite(propLedColorMid.getProp().get(), arcWidth, arcHeight),
+					createSprite(propLedColorClip.getProp().get(), arcWidth, arcHeight) };
+			offSprite = createSprite(OFF_COLOR, arcWidth, arcHeight);
+		}
+		litCounts = new int[2];
+		redrawAll = true;
+	}
+	
+	private Image createSprite(Color color, double arcWidth, double arcHeight) {
+		Canvas sprite = new Canvas(spriteWidth, spriteHeight);
+		GraphicsContext gc = sprite.getGraphicsContext2D();
+		gc.setFill(color);
+		gc.fillRoundRect(0, 0, spriteWidth, spriteHeight, arcWidth, arcHeight);
+		SnapshotParameters parameters = new SnapshotParameters();
+		parameters.setFill(Color.TRANSPARENT);
+		return sprite.snapshot(parameters, null);
+	}
+	
+	private void drawCanvas() {
+		if(onSprites == null) {
+			return;
+		}
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		if(redrawAll) {
+			gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+		}
+		drawLeds(gc, Channel.LEFT, currentDbL);
+		drawLeds(gc, Channel.RIGHT, currentDbR);
+		redrawAll = false;
+	}
+	
+	/**
+	 * Draws the LEDs of a channel which changed state since the last frame, all of them after a layout change.
+	 */
+	private void drawLeds(GraphicsContext gc, Channel channel, double db) {
+		int ledCount = ledX.length;
+		int minDbValue = propMinDbValue.getProp().get();
+		
+		// LEDs light from the left, each above its threshold
+		double position = (db - minDbValue) * ledCount / -minDbValue;
+		int lit = position <= 0 ? 0 : position >= ledCount ? ledCount : (int) Math.ceil(position);
+		
+		int previous = litCounts[channel.ordinal()];
+		int from = redrawAll ? 0 : Math.min(lit, previous);
+		int to = redrawAll ? ledCount : Math.max(lit, previous);
+		double y = ledY[channel.ordinal()];
+		for (int col = from; col < to; col++) {
+			
+			// Cleared first, as the rounded corners of the sprites are partly transparent
+			gc.clearRect(ledX[col], y, spriteWidth, spriteHeight);
+			gc.drawImage(col < lit ? onSprites[ledZones[col]] : offSprite, ledX[col], y);
+		}
+		litCounts[channel.ordinal()] = lit;
+	}
+	
+	/**
+	 * @return Level above which an LED lights
+	 */
+	private double getLedThreshold(int col, int ledCount) {
+		int minDbValue = propMinDbValue.getProp().get();
+		return minDbValue - (double) minDbValue * col / ledCount;
+	}
+	
 	private Node createLabel(Channel channel) {
 		Label label = new Label(channel == Channel.LEFT ? "L" : "R");
 		
@@ -243,8 +430,7 @@ public class StereoLevelsLedView extends AbstractView {
 		
 		led.fillProperty().bind(Bindings.createObjectBinding(
 				() -> {
-					double range = Math.abs(propMinDbValue.getProp().get() / propLedCount.getProp().get());
-					double min = propMinDbValue.getProp().get() + range * col;
+					double min = getLedThreshold(col, propLedCount.getProp().get());
 					
 					Color color;
 					if(min > propClipDbValue.getProp().get()) {
@@ -262,6 +448,26 @@ public class StereoLevelsLedView extends AbstractView {
 		return led;
 	}
 	
+	private void updateFeature() {
+		if(shown && LevelMode.TRUE_PEAK.name().equals(propLevelMode.get())) {
+			AnalysisEngine.getInstance().addFeature(truePeak);
+		} else {
+			AnalysisEngine.getInstance().removeFeature(truePeak);
+		}
+	}
+	
+	@Override
+	public void onShow() {
+		shown = true;
+		updateFeature();
+	}
+	
+	@Override
+	public void onHide() {
+		shown = false;
+		updateFeature();
+	}
+	
 	/* Utilities */
 	private void bindFontSizeToParentWidth(Label label, double ratio, String family) {
 		label.fontProperty().bind(Bindings.createObjectBinding(
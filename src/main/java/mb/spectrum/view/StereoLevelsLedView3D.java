@@ -4,8 +4,6 @@ import static mb.spectrum.UiUtils.createConfigurableBooleanProperty;
 import static mb.spectrum.UiUtils.createConfigurableColorProperty;
 import static mb.spectrum.UiUtils.createConfigurableDoubleProperty;
 import static mb.spectrum.UiUtils.createConfigurableIntegerProperty;
-import static mb.spectrum.Utils.peakLevel;
-import static mb.spectrum.Utils.rmsLevel;
 
 import java.util.Arrays;
 import java.util.List;
@@ -38,6 +36,7 @@ import javafx.scene.transform.Translate;
 import javafx.util.Duration;
 import mb.spectrum.Utils;
 import mb.spectrum.Utils3D;
+import mb.spectrum.analysis.AnalysisFrame;
 import mb.spectrum.prop.ConfigurableBooleanProperty;
 import mb.spectrum.prop.ConfigurableColorProperty;
 import mb.spectrum.prop.ConfigurableDoubleProperty;
@@ -194,15 +193,15 @@ public class StereoLevelsLedView3D extends AbstractView {
 	}
 
 	@Override
-	public void dataAvailable(float[] left, float[] right) {
+	public void dataAvailable(AnalysisFrame frame) {
 		
 		float levelLeft = 0, levelRight = 0;
 		if(propRms.getProp().get()) {
-			levelLeft = rmsLevel(left);
-			levelRight = rmsLevel(right);
+			levelLeft = frame.getLeftLevels().getRms();
+			levelRight = frame.getRightLevels().getRms();
 		} else {
-			levelLeft = peakLevel(left);
-			levelRight = peakLevel(right);
+			levelLeft = frame.getLeftLevels().getPeak();
+			levelRight = frame.getRightLevels().getPeak();
 		}
 		
 		currentDbL = Utils.toDB(levelLeft);
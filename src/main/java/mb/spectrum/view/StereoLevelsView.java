@@ -1,14 +1,13 @@
 package mb.spectrum.view;
 
 import static mb.spectrum.UiUtils.createConfigurableBooleanProperty;
+import static mb.spectrum.UiUtils.createConfigurableChoiceProperty;
 import static mb.spectrum.UiUtils.createConfigurableColorProperty;
 import static mb.spectrum.UiUtils.createConfigurableDoubleProperty;
 import static mb.spectrum.UiUtils.createConfigurableIntegerProperty;
 import static mb.spectrum.UiUtils.createLabel;
 import static mb.spectrum.Utils.map;
 import static mb.spectrum.Utils.mapBounded;
-import static mb.spectrum.Utils.peakLevel;
-import static mb.spectrum.Utils.rmsLevel;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -25,15 +24,29 @@ import javafx.scene.paint.Color;
 import javafx.scene.shape.Line;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.shape.StrokeLineCap;
+import mb.spectrum.ConfigService;
 import mb.spectrum.UiUtils;
 import mb.spectrum.Utils;
+import mb.spectrum.analysis.AnalysisEngine;
+import mb.spectrum.analysis.AnalysisFrame;
+import mb.spectrum.analysis.LoudnessFeature;
+import mb.spectrum.analysis.TruePeakFeature;
 import mb.spectrum.prop.ActionProperty;
+import mb.spectrum.prop.ConfigurableChoiceProperty;
 import mb.spectrum.prop.ConfigurableDoubleProperty;
 import mb.spectrum.prop.ConfigurableIntegerProperty;
 import mb.spectrum.prop.ConfigurableProperty;
 
 public class StereoLevelsView extends AbstractView {
 	
+	/**
+	 * Measure shown by the meters. Loudness is the momentary loudness in LUFS, shown on the same scale as the 
+	 * levels in dBFS, with the scale relabeled and the bar colors unchanged.
+	 */
+	public static enum LevelMode {
+		PEAK, RMS, TRUE_PEAK, LOUDNESS
+	}
+	
 	private static final int INIT_MIN_DB_VALUE = -66;
 	private static final int DB_LINES_COUNT = 8;
 	private static final double GRID_MARGIN_RATIO = 0.07;
@@ -54,7 +67,7 @@ public class StereoLevelsView extends AbstractView {
 	private ConfigurableProperty<Double> propDrBarOpacity;
 	private ConfigurableProperty<Boolean> propShowDr;
 	private ConfigurableDoubleProperty propBarHeight;
-	private ConfigurableProperty<Boolean> propRms;
+	private ConfigurableChoiceProperty propLevelMode;
 	private ActionProperty propResetDr;
 	
 	private List<Line> lines;
@@ -69,6 +82,11 @@ public class StereoLevelsView extends AbstractView {
 	private double lingerLevelL = INIT_MIN_DB_VALUE, lingerLevelR = INIT_MIN_DB_VALUE, 
 			lingerOpValL = LINGER_STAY_FACTOR, lingerOpValR = LINGER_STAY_FACTOR;
 	
+	// True peak and momentary loudness, computed only in their mode while the view is shown
+	private final TruePeakFeature truePeak = new TruePeakFeature();
+	private LoudnessFeature loudness;
+	private boolean shown;
+	
 	private DoubleProperty currLevelLProp, currLevelRProp, minLevelLProp, 
 		maxLevelLProp, minLevelRProp, maxLevelRProp, leftLingerLevelProp, rightLingerLevelProp;
 	
@@ -114,8 +132,17 @@ public class StereoLevelsView extends AbstractView {
 				keyPrefix + "showDynamicRange", "Show Dynamic Range", true);
 		propBarHeight = createConfigurableDoubleProperty(
 				keyPrefix + "barHeight", "Level Bar Height", 0.05, 1.0, 0.25, 0.05);
-		propRms = createConfigurableBooleanProperty(
-				keyPrefix + "enableRmsMode", "RMS Mode", false);
+		
+		// Seeded from the former RMS mode switch when not configured yet
+		propLevelMode = createConfigurableChoiceProperty(
+				keyPrefix + "levelMode", "Level Mode", 
+				Arrays.asList(LevelMode.PEAK.name(), LevelMode.RMS.name(), LevelMode.TRUE_PEAK.name(), LevelMode.LOUDNESS.name()), 
+				getInitialLevelMode(keyPrefix).name());
+		propLevelMode.getProp().addListener((obs, oldVal, newVal) -> {
+			if(shown) {
+				updateFeatures();
+			}
+		});
 		propResetDr = new ActionProperty("Reset D/R");
 		propResetDr.setOnAction((e) -> {
 			onResetDr();
@@ -135,7 +162,7 @@ public class StereoLevelsView extends AbstractView {
 	@Override
 	public List<ConfigurableProperty<? extends Object>> getProperties() {
 		return Arrays.asList(propGridColor, propBarOpacity, propBarColorNormal, 
-				propBarColorMid, propLingerIndicatorColor, propBarColorClip, propRms, propResetDr,
+				propBarColorMid, propLingerIndicatorColor, propBarColorClip, propLevelMode, propResetDr,
 				propDrBarColor, propDrBarOpacity, propShowDr, propBarHeight, propMinDbValue);
 	}
 
@@ -216,7 +243,10 @@ public class StereoLevelsView extends AbstractView {
 		lines.add(line);
 		
 		// Create label
-		Label label = createLabel(Math.round(dBVal) + "dB", labels);
+		Label label = createLabel("", labels);
+		label.textProperty().bind(Bindings.createStringBinding(
+				() -> Math.round(dBVal) + (LevelMode.LOUDNESS.name().equals(propLevelMode.get()) ? "LUFS" : "dB"), 
+				propLevelMode.getProp()));
 		label.layoutXProperty().bind(line.startXProperty().subtract(label.widthProperty().divide(2)));
 		label.layoutYProperty().bind(line.startYProperty().subtract(label.heightProperty()));
 		label.textFillProperty().bind(propGridColor.getProp());
@@ -308,20 +338,35 @@ public class StereoLevelsView extends AbstractView {
 	/* Handlers */
 
 	@Override
-	public void dataAvailable(float[] left, float[] right) {
+	public void dataAvailable(AnalysisFrame frame) {
 		
-		float levelLeft = 0, levelRight = 0;
-		if(propRms.getProp().get()) {
-			levelLeft = rmsLevel(left);
-			levelRight = rmsLevel(right);
-		} else {
-			levelLeft = peakLevel(left);
-			levelRight = peakLevel(right);
+		switch (LevelMode.valueOf(propLevelMode.get())) {
+		case RMS:
+			currentDbL = Utils.toDB(frame.getLeftLevels().getRms());
+			currentDbR = Utils.toDB(frame.getRightLevels().getRms());
+			break;
+		case TRUE_PEAK:
+			TruePeakFeature.Result truePeakResult = frame.getResult(truePeak);
+			if(truePeakResult == null) {
+				return;
+			}
+			currentDbL = Utils.toDB(truePeakResult.getLeft());
+			currentDbR = Utils.toDB(truePeakResult.getRight());
+			break;
+		case LOUDNESS:
+			LoudnessFeature.Result result = loudness != null ? frame.getResult(loudness) : null;
+			if(result == null) {
+				return;
+			}
+			currentDbL = result.getChannelMomentary(0);
+			currentDbR = result.getChannelMomentary(1);
+			break;
+		default:
+			currentDbL = Utils.toDB(frame.getLeftLevels().getPeak());
+			currentDbR = Utils.toDB(frame.getRightLevels().getPeak());
+			break;
 		}
 		
-		currentDbL = Utils.toDB(levelLeft);
-		currentDbR = Utils.toDB(levelRight);
-		
 		minLevelL = Math.min(minLevelL, currentDbL);
 		maxLevelL = Math.max(maxLevelL, currentDbL);
 		minLevelR = Math.min(minLevelR, currentDbR);
@@ -399,6 +444,50 @@ public class StereoLevelsView extends AbstractView {
 				maxLevelProp, getRoot().widthProperty(), bar.xProperty(), propMinDbValue.getProp()));
 	}
 	
+	/**
+	 * Adds the feature of the current level mode to the engine, and removes the others.
+	 */
+	private void updateFeatures() {
+		AnalysisEngine engine = AnalysisEngine.getInstance();
+		if(shown && LevelMode.TRUE_PEAK.name().equals(propLevelMode.get())) {
+			engine.addFeature(truePeak);
+		} else {
+			engine.removeFeature(truePeak);
+		}
+		
+		if(shown && LevelMode.LOUDNESS.name().equals(propLevelMode.get())) {
+			if(loudness == null || loudness.getSamplingRate() != engine.getSamplingRate()) {
+				if(loudness != null) {
+					engine.removeFeature(loudness);
+				}
+				loudness = new LoudnessFeature(engine.getSamplingRate());
+			}
+			engine.addFeature(loudness);
+		} else if(loudness != null) {
+			engine.removeFeature(loudness);
+		}
+	}
+	
+	@Override
+	public void onShow() {
+		shown = true;
+		updateFeatures();
+	}
+	
+	@Override
+	public void onHide() {
+		shown = false;
+		updateFeatures();
+	}
+	
+	/**
+	 * @return Level mode of the former RMS mode switch, if it was configured
+	 */
+	static LevelMode getInitialLevelMode(String keyPrefix) {
+		return Boolean.valueOf(ConfigService.getInstance().getProperty(keyPrefix + "enableRmsMode")) ? 
+				LevelMode.RMS : LevelMode.PEAK;
+	}
+	
 	private void onResetDr() {
 		minLevelL = 0;
 		minLevelR = 0; 
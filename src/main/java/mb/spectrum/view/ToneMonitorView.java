@@ -0,0 +1,294 @@
+package mb.spectrum.view;
+
+import static mb.spectrum.UiUtils.createConfigurableChoiceProperty;
+import static mb.spectrum.UiUtils.createConfigurableColorProperty;
+import static mb.spectrum.UiUtils.createConfigurableIntegerProperty;
+import static mb.spectrum.UiUtils.createLabel;
+import static mb.spectrum.Utils.map;
+import static mb.spectrum.Utils.mapBounded;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.Rectangle;
+import mb.spectrum.analysis.AnalysisEngine;
+import mb.spectrum.analysis.AnalysisFrame;
+import mb.spectrum.analysis.ToneFeature;
+import mb.spectrum.prop.ConfigurableChoiceProperty;
+import mb.spectrum.prop.ConfigurableColorProperty;
+import mb.spectrum.prop.ConfigurableIntegerProperty;
+import mb.spectrum.prop.ConfigurableProperty;
+
+/**
+ * Tone monitor, showing the levels of a fundamental frequency and its harmonics as bars, e.g. to track mains hum
+ * or a test tone without computing a full spectrum.
+ */
+public class ToneMonitorView extends AbstractView {
+	
+	private static final int SCALE_LINES_COUNT = 6;
+	
+	private ConfigurableIntegerProperty propFundamental, propHarmonics, propIntegrationTime, propMinDbValue;
+	private ConfigurableChoiceProperty propMethod;
+	private ConfigurableColorProperty propGridColor, propBarColor, propTextColor;
+	
+	private ToneFeature tones;
+	private int samplingRate;
+	private boolean shown;
+	private List<Line> lines;
+	private List<Label> labels;
+	
+	// Frequencies shown, as of the last reset, and their latest levels
+	private float[] frequencies;
+	private float[] levels;
+	
+	// Levels shown as text in tenths of dB, so that a text is only formatted when it changes
+	private int[] shownTenths;
+	
+	private DoubleProperty[] levelProps;
+	private StringProperty[] valueProps;
+	
+	@Override
+	public String getName() {
+		return "Tone Monitor";
+	}
+	
+	@Override
+	protected void initProperties() {
+		
+		final String keyPrefix = "toneMonitorView.";
+		
+		/* Configuration Properties */
+		
+		// Requiring reset
+		propFundamental = createConfigurableIntegerProperty(
+				keyPrefix + "fundamental", "Fundamental", 20, 20000, 50, 1, "Hz");
+		propFundamental.addUpdateFinishedListener((obs, oldVal, newVal) -> {
+			if(newVal != oldVal) {
+				reset();
+			}
+		});
+		propHarmonics = createConfigurableIntegerProperty(
+				keyPrefix + "harmonics", "Harmonics", 1, 10, 5, 1);
+		propHarmonics.addUpdateFinishedListener((obs, oldVal, newVal) -> {
+			if(newVal != oldVal) {
+				reset();
+			}
+		});
+		propMinDbValue = createConfigurableIntegerProperty(
+				keyPrefix + "minDbValue", "Min. DB Value", -140, -40, -100, 5, "dB");
+		propMinDbValue.addUpdateFinishedListener((obs, oldVal, newVal) -> {
+			if(newVal != oldVal) {
+				reset();
+			}
+		});
+		
+		// Requiring a new feature
+		propMethod = createConfigurableChoiceProperty(
+				keyPrefix + "method", "Method", ToneFeature.Method.class);
+		propMethod.getProp().addListener((obs, oldVal, newVal) -> {
+			updateFeature();
+		});
+		propIntegrationTime = createConfigurableIntegerProperty(
+				keyPrefix + "integrationTime", "Integration Time", 50, 2000, 500, 50, "ms");
+		propIntegrationTime.addUpdateFinishedListener((obs, oldVal, newVal) -> {
+			if(newVal != oldVal) {
+				updateFeature();
+			}
+		});
+		
+		// Not requiring reset
+		propGridColor = createConfigurableColorProperty(
+				keyPrefix + "gridColor", "Grid Color", Color.web("#fd4a11"));
+		propBarColor = createConfigurableColorProperty(
+				keyPrefix + "barColor", "Bar Color", Color.LAWNGREEN);
+		propTextColor = createConfigurableColorProperty(
+				keyPrefix + "textColor", "Text Color", Color.LIGHTGRAY);
+	}
+	
+	@Override
+	public List<ConfigurableProperty<? extends Object>> getProperties() {
+		return Arrays.asList(propFundamental, propHarmonics, propMethod, propIntegrationTime, propMinDbValue,
+				propGridColor, propBarColor, propTextColor);
+	}
+	
+	@Override
+	protected List<Node> collectNodes() {
+		
+		// Harmonics up to the Nyquist frequency
+		samplingRate = AnalysisEngine.getInstance().getSamplingRate();
+		int fundamental = propFundamental.getProp().get();
+		int count = Math.max(1, Math.min(propHarmonics.getProp().get(), samplingRate / 2 / fundamental));
+		float[] frequencies = new float[count];
+		for (int i = 0; i < count; i++) {
+			frequencies[i] = fundamental * (i + 1);
+		}
+		levels = new float[count];
+		Arrays.fill(levels, Float.NEGATIVE_INFINITY);
+		levelProps = new DoubleProperty[count];
+		valueProps = new StringProperty[count];
+		shownTenths = new int[count];
+		Arrays.fill(shownTenths, Integer.MIN_VALUE);
+		this.frequencies = frequencies;
+		
+		// Create scale
+		lines = new ArrayList<>();
+		labels = new ArrayList<>();
+		for (int i = 0; i <= SCALE_LINES_COUNT; i++) {
+			createScaleLineAndLabel(i);
+		}
+		
+		// One bar per frequency
+		List<Rectangle> bars = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			levelProps[i] = new SimpleDoubleProperty(propMinDbValue.getProp().get());
+			valueProps[i] = new SimpleStringProperty("");
+			Rectangle bar = createBar(i, count, levelProps[i]);
+			createBarLabels(MessageFormat.format("{0,number,#} Hz", frequencies[i]), valueProps[i], bar);
+			bars.add(bar);
+		}
+		updateFeature();
+		
+		List<Node> nodes = new ArrayList<>();
+		nodes.addAll(lines);
+		nodes.addAll(labels);
+		nodes.addAll(bars);
+		return nodes;
+	}
+	
+	private void createScaleLineAndLabel(int idx) {
+		int minDbValue = propMinDbValue.getProp().get();
+		double value = map(idx, 0, SCALE_LINES_COUNT, minDbValue, 0);
+		
+		Line line = new Line();
+		line.startXProperty().bind(Bindings.createDoubleBinding(
+				() -> toX(value), getRoot().widthProperty()));
+		line.endXProperty().bind(line.startXProperty());
+		line.startYProperty().bind(getRoot().heightProperty().multiply(SCENE_MARGIN_RATIO * 2));
+		line.endYProperty().bind(getRoot().heightProperty().multiply(1 - SCENE_MARGIN_RATIO * 2));
+		line.strokeProperty().bind(propGridColor.getProp());
+		line.getStrokeDashArray().addAll(2d);
+		line.setCache(true);
+		lines.add(line);
+		
+		Label label = createLabel(Math.round(value) + "", labels);
+		label.layoutXProperty().bind(line.startXProperty().subtract(label.widthProperty().divide(2)));
+		label.layoutYProperty().bind(line.startYProperty().subtract(label.heightProperty()));
+		label.textFillProperty().bind(propGridColor.getProp());
+		label.styleProperty().bind(Bindings.concat(
+				"-fx-font-size: ", Bindings.createDoubleBinding(
+						() -> Math.sqrt(getRoot().widthProperty().get() / 3),
+						getRoot().widthProperty())));
+	}
+	
+	private Rectangle createBar(int idx, int count, DoubleProperty levelProp) {
+		
+		// Bars share the height between the scale labels and the bottom margin
+		double top = SCENE_MARGIN_RATIO * 3, slot = (1 - SCENE_MARGIN_RATIO * 5) / count;
+		Rectangle bar = new Rectangle();
+		bar.xProperty().bind(Bindings.createDoubleBinding(
+				() -> toX(propMinDbValue.getProp().get()), getRoot().widthProperty()));
+		bar.heightProperty().bind(getRoot().heightProperty().multiply(slot * 0.7));
+		bar.yProperty().bind(getRoot().heightProperty().multiply(top + idx * slot + slot * 0.15));
+		bar.widthProperty().bind(Bindings.createDoubleBinding(
+				() -> toX(levelProp.get()) - bar.getX(),
+				levelProp, getRoot().widthProperty(), bar.xProperty()));
+		bar.fillProperty().bind(propBarColor.getProp());
+		return bar;
+	}
+	
+	private void createBarLabels(String text, StringProperty valueProp, Rectangle bar) {
+		Label label = createLabel(text, labels);
+		label.layoutXProperty().bind(bar.xProperty().subtract(label.widthProperty()).subtract(5));
+		label.layoutYProperty().bind(bar.yProperty().add(bar.heightProperty().subtract(label.heightProperty()).divide(2)));
+		label.textFillProperty().bind(propTextColor.getProp());
+		label.styleProperty().bind(Bindings.concat(
+				"-fx-font-size: ", Bindings.createDoubleBinding(
+						() -> getRoot().widthProperty().get() / 60,
+						getRoot().widthProperty())));
+		
+		Label value = createLabel("", labels);
+		value.textProperty().bind(valueProp);
+		value.layoutXProperty().bind(Bindings.createDoubleBinding(
+				() -> toX(0) + 5, getRoot().widthProperty()));
+		value.layoutYProperty().bind(label.layoutYProperty());
+		value.textFillProperty().bind(propTextColor.getProp());
+		value.styleProperty().bind(label.styleProperty());
+	}
+	
+	private double toX(double value) {
+		double width = getRoot().widthProperty().get();
+		return mapBounded(value, propMinDbValue.getProp().get(), 0,
+				width * SCENE_MARGIN_RATIO * 3, width - width * SCENE_MARGIN_RATIO * 4);
+	}
+	
+	/* Handlers */
+	
+	@Override
+	public void dataAvailable(AnalysisFrame frame) {
+		ToneFeature.Result result = frame.getResult(tones);
+		if(result != null && result.getLevelsDB().length == levels.length) {
+			System.arraycopy(result.getLevelsDB(), 0, levels, 0, levels.length);
+		}
+	}
+	
+	@Override
+	public void nextFrame() {
+		
+		// Update operational properties from UI thread
+		int minDbValue = propMinDbValue.getProp().get();
+		for (int i = 0; i < levels.length; i++) {
+			levelProps[i].set(levels[i]);
+			int tenths = levels[i] > minDbValue ? Math.round(levels[i] * 10) : Integer.MIN_VALUE;
+			if(tenths != shownTenths[i]) {
+				shownTenths[i] = tenths;
+				valueProps[i].set(tenths == Integer.MIN_VALUE ? "" :
+						MessageFormat.format("{0,number,0.0} dB", tenths / 10.0));
+			}
+		}
+	}
+	
+	@Override
+	public void onShow() {
+		shown = true;
+		
+		// The harmonics depend on the sampling rate
+		if(samplingRate != AnalysisEngine.getInstance().getSamplingRate()) {
+			reset();
+		} else {
+			updateFeature();
+		}
+	}
+	
+	@Override
+	public void onHide() {
+		shown = false;
+		updateFeature();
+	}
+	
+	/**
+	 * Replaces the feature by one matching the current frequencies and settings, only while the view is shown.
+	 */
+	private void updateFeature() {
+		AnalysisEngine engine = AnalysisEngine.getInstance();
+		if(tones != null) {
+			engine.removeFeature(tones);
+			tones = null;
+		}
+		if(shown && frequencies != null) {
+			int windowSize = Math.max(1, samplingRate * propIntegrationTime.getProp().get() / 1000);
+			tones = new ToneFeature(ToneFeature.Method.valueOf(propMethod.get()), frequencies, windowSize, samplingRate);
+			engine.addFeature(tones);
+		}
+	}
+}
@@ -3,13 +3,14 @@ package mb.spectrum.view;
 import java.util.List;
 
 import javafx.scene.layout.Pane;
+import mb.spectrum.analysis.AnalysisFrame;
 import mb.spectrum.prop.ConfigurableProperty;
 
 public interface View {
 	String getName();
 	Pane getRoot();
 	List<ConfigurableProperty<? extends Object>> getProperties();
-	void dataAvailable(float[] left, float[] right);
+	void dataAvailable(AnalysisFrame frame);
 	void nextFrame();
 	void onShow();
 	void onHide();